@@ -0,0 +1,70 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.standin.CloudTrailRows;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Full export path: conversion from Athena pages, masking and CSV/JSON/CBOR encoding
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+    
+    @Param({"csv", "json", "cbor"})
+    private String format;
+    
+    @Param({"WIDE", "JSON_HEAVY"})
+    private String shape;
+    
+    @Param({"10000"})
+    private int rows;
+    
+    private DataMaskingService dataMaskingService;
+    private ResultExportService exportService;
+    
+    @Setup
+    public void setUp() throws InterruptedException {
+        QueryResultSet results = CloudTrailRows.generate(CloudTrailRows.Shape.valueOf(shape), rows, 0.2);
+        List<GetQueryResultsResponse> pages = CloudTrailRows.pages(results, 1000);
+        
+        AthenaService athenaService = mock(AthenaService.class, withSettings().stubOnly());
+        when(athenaService.streamQueryResults(anyString())).thenAnswer(invocation ->
+            new AthenaResultStream(QueryExecution.builder().build(), pages.iterator(), Runnable::run));
+        
+        CloudAuditConfig config = new CloudAuditConfig();
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        dataMaskingService = new DataMaskingService(config, metrics);
+        exportService = new ResultExportService(athenaService, dataMaskingService, config, new ObjectMapper(), metrics);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        dataMaskingService.shutdown();
+    }
+    
+    @Benchmark
+    public void export() throws IOException {
+        OutputStream out = OutputStream.nullOutputStream();
+        if (format.equals("csv")) {
+            exportService.writeCsv("benchmark", out);
+        } else {
+            exportService.writeRows("benchmark", out, format.equals("cbor"));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.standin.CloudTrailRows;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaskingBenchmark {
+    
+    @Param({"NARROW", "WIDE", "JSON_HEAVY"})
+    private String shape;
+    
+    @Param({"0.1", "0.5"})
+    private double identifierDensity;
+    
+    // Below and above the default masking-parallel-threshold
+    @Param({"1000", "50000"})
+    private int rows;
+    
+    private DataMaskingService dataMaskingService;
+    private QueryResultSet results;
+    private DataMaskingService.RowMasker masker;
+    
+    @Setup
+    public void setUp() {
+        dataMaskingService = new DataMaskingService(new CloudAuditConfig(), new PipelineMetrics(new SimpleMeterRegistry()));
+        results = CloudTrailRows.generate(CloudTrailRows.Shape.valueOf(shape), rows, identifierDensity);
+        masker = dataMaskingService.rowMasker(results.getColumns());
+    }
+    
+    @TearDown
+    public void tearDown() {
+        dataMaskingService.shutdown();
+    }
+    
+    @Benchmark
+    public QueryResultSet maskSensitiveData() {
+        return dataMaskingService.maskSensitiveData(results);
+    }
+    
+    // The per-row path used while streaming previews and exports
+    @Benchmark
+    public void maskRowByRow(Blackhole blackhole) {
+        for (String[] row : results.getRows()) {
+            blackhole.consume(masker.mask(row));
+        }
+    }
+}
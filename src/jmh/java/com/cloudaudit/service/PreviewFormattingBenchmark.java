@@ -0,0 +1,51 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.dto.QueryResponse;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.standin.CloudTrailRows;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// What every /api/query response pays for its 100-row preview
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreviewFormattingBenchmark {
+    
+    @Param({"NARROW", "WIDE", "JSON_HEAVY"})
+    private String shape;
+    
+    private QueryResultSet preview;
+    private QueryResponse response;
+    private ResultSummaryBuilder summaryBuilder;
+    private ObjectMapper objectMapper;
+    
+    @Setup
+    public void setUp() {
+        preview = CloudTrailRows.generate(CloudTrailRows.Shape.valueOf(shape), 100, 0.2);
+        summaryBuilder = new ResultSummaryBuilder(new CloudAuditConfig());
+        objectMapper = new ObjectMapper();
+        
+        response = new QueryResponse();
+        response.setSqlQuery("SELECT * FROM [REDACTED] LIMIT 100");
+        response.setColumns(preview.getColumns());
+        response.setRows(preview.getRows());
+    }
+    
+    @Benchmark
+    public String descriptionSummary() {
+        return summaryBuilder.summarize(preview);
+    }
+    
+    @Benchmark
+    public byte[] responseJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,59 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.standin.CloudTrailRows;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+import software.amazon.awssdk.services.athena.model.Row;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultConversionBenchmark {
+    
+    @Param({"NARROW", "WIDE", "JSON_HEAVY"})
+    private String shape;
+    
+    @Param({"1000", "50000"})
+    private int rows;
+    
+    private List<GetQueryResultsResponse> pages;
+    private int columnCount;
+    
+    @Setup
+    public void setUp() {
+        QueryResultSet results = CloudTrailRows.generate(CloudTrailRows.Shape.valueOf(shape), rows, 0.2);
+        pages = CloudTrailRows.pages(results, 1000);
+        columnCount = results.getColumns().size();
+    }
+    
+    @Benchmark
+    public void toValues(Blackhole blackhole) {
+        for (GetQueryResultsResponse page : pages) {
+            for (Row row : page.resultSet().rows()) {
+                blackhole.consume(AthenaResultStream.toValues(row, columnCount));
+            }
+        }
+    }
+    
+    // Pages are already in memory, so this measures conversion and buffering rather than prefetching
+    @Benchmark
+    public QueryResultSet streamIntoResultSet() {
+        try (AthenaResultStream stream = new AthenaResultStream(
+                QueryExecution.builder().build(), pages.iterator(), Runnable::run)) {
+            QueryResultSet.Builder results = QueryResultSet.builder(stream.getColumns());
+            while (stream.hasNext()) {
+                results.addRow(stream.next());
+            }
+            return results.build();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.cloudaudit.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+    
+    private final CloudAuditConfig config;
+    
+    public AsyncConfig(CloudAuditConfig config) {
+        this.config = config;
+    }
+    
+    @Bean
+    public AsyncTaskExecutor queryPipelineExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // One virtual thread per job; the limit bounds concurrent Athena/Bedrock work instead of a pool size
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("query-pipeline-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(config.getPipelineVirtualConcurrencyLimit());
+            return executor;
+        }
+        
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("query-pipeline-");
+        executor.setCorePoolSize(config.getPipelineThreads());
+        executor.setMaxPoolSize(config.getPipelineThreads());
+        executor.setQueueCapacity(config.getPipelineQueueCapacity());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -2,12 +2,21 @@ package com.cloudaudit.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.athena.AthenaAsyncClient;
 import software.amazon.awssdk.services.athena.AthenaClient;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+
+import java.time.Duration;
 
 @Configuration
+@Profile("!standin")
 public class AwsConfig {
     
     private final CloudAuditConfig config;
@@ -21,14 +30,39 @@ public class AwsConfig {
         return AthenaClient.builder()
                 .region(Region.of(config.getAwsRegion()))
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(pooledHttpClient())
                 .build();
     }
     
     @Bean
-    public BedrockRuntimeClient bedrockClient() {
-        return BedrockRuntimeClient.builder()
+    public AthenaAsyncClient athenaAsyncClient() {
+        return AthenaAsyncClient.builder()
                 .region(Region.of(config.getAwsRegion()))
                 .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(nettyHttpClient())
                 .build();
     }
+    
+    @Bean
+    public BedrockRuntimeAsyncClient bedrockAsyncClient() {
+        return BedrockRuntimeAsyncClient.builder()
+                .region(Region.of(config.getAwsRegion()))
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(nettyHttpClient())
+                .build();
+    }
+    
+    // The SDK default of 50 connections caps concurrency well below what virtual threads allow
+    private SdkHttpClient.Builder<?> pooledHttpClient() {
+        return ApacheHttpClient.builder()
+                .maxConnections(config.getHttpMaxConnections())
+                .connectionAcquisitionTimeout(Duration.ofSeconds(config.getHttpConnectionAcquisitionTimeoutSeconds()));
+    }
+    
+    // Non-blocking clients share a few event-loop threads; concurrency is bounded by open connections only
+    private SdkAsyncHttpClient.Builder<?> nettyHttpClient() {
+        return NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(config.getHttpMaxConnections())
+                .connectionAcquisitionTimeout(Duration.ofSeconds(config.getHttpConnectionAcquisitionTimeoutSeconds()));
+    }
 }
@@ -8,13 +8,50 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @ConfigurationProperties(prefix = "cloudaudit")
 public class CloudAuditConfig {
+    private String catalogName = "AwsDataCatalog";
     private String databaseName;
     private String tableName;
     private String s3OutputLocation;
     private String awsRegion;
     private String bedrockModelId;
     private int maxRetries;
-    private int waitTimeSeconds;
     private double temperature;
     private int maxTokens;
+    private long schemaCacheTtlMinutes = 60;
+    private int resultPageSize = 1000;
+    private long pollInitialIntervalMillis = 100;
+    private long pollMaxIntervalMillis = 2000;
+    private double pollBackoffMultiplier = 2.0;
+    private long pollCompletedRetentionSeconds = 600;
+    private long queryTimeoutSeconds = 300;
+    private int maskingParallelism = 0;
+    private int maskingParallelThreshold = 10000;
+    private int maskingChunkSize = 2048;
+    private long resultRetentionMinutes = 60;
+    private int pipelineThreads = 16;
+    private int pipelineQueueCapacity = 200;
+    private long jobEventsTimeoutSeconds = 600;
+    private int pipelineVirtualConcurrencyLimit = 500;
+    private int httpMaxConnections = 50;
+    private long httpConnectionAcquisitionTimeoutSeconds = 10;
+    private int sqlCacheMaxEntries = 1000;
+    private long sqlCacheTtlMinutes = 720;
+    private double sqlCacheSimilarityThreshold = 0.85;
+    private long resultCacheTtlMinutes = 5;
+    private long resultCacheMaxBytes = 64L * 1024 * 1024;
+    private String resultCacheSpillDirectory = "";
+    private long resultCacheSpillMaxBytes = 512L * 1024 * 1024;
+    private int descriptionPromptMaxChars = 12000;
+    private int descriptionCellMaxChars = 120;
+    private int descriptionTopValues = 5;
+    private int resultPageMaxSize = 1000;
+    private boolean partitionPruningEnabled = true;
+    private int sqlDefaultLimit = 10000;
+    private String athenaWorkGroup = "";
+    private int athenaMaxConcurrentQueries = 5;
+    private int athenaAdmissionQueueCapacity = 50;
+    private long athenaAdmissionTimeoutSeconds = 60;
+    private long athenaMaxBytesScanned = 50L * 1024 * 1024 * 1024;
+    private int batchMaxQuestions = 25;
+    private int batchBedrockConcurrency = 4;
 }
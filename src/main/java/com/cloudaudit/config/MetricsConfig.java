@@ -0,0 +1,28 @@
+package com.cloudaudit.config;
+
+import com.cloudaudit.service.PipelineMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+
+@Configuration
+public class MetricsConfig {
+    
+    // @EnableRetry applies every RetryListener bean to the @Retryable methods
+    @Bean
+    public RetryListener retryMetricsListener(PipelineMetrics metrics) {
+        return new RetryListener() {
+            @Override
+            public <T, E extends Throwable> void close(RetryContext context,
+                                                       RetryCallback<T, E> callback,
+                                                       Throwable throwable) {
+                // The last failed attempt is only a retry if another attempt followed it
+                int retries = context.getRetryCount() - (throwable != null ? 1 : 0);
+                Object label = context.getAttribute(RetryContext.NAME);
+                metrics.recordRetries(label == null ? "unknown" : label.toString(), retries);
+            }
+        };
+    }
+}
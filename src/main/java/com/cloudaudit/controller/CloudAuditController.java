@@ -1,40 +1,73 @@
 package com.cloudaudit.controller;
 
 import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.dto.BatchQueryRequest;
+import com.cloudaudit.dto.BatchQueryResult;
+import com.cloudaudit.dto.QueryJobStatus;
+import com.cloudaudit.dto.QueryProgressEvent;
 import com.cloudaudit.dto.QueryRequest;
 import com.cloudaudit.dto.QueryResponse;
-import com.cloudaudit.service.AthenaService;
-import com.cloudaudit.service.SqlQueryService;
-import com.cloudaudit.service.DataMaskingService;
+import com.cloudaudit.dto.ResultPage;
+import com.cloudaudit.model.QueryCancellation;
+import com.cloudaudit.model.QueryJob;
+import com.cloudaudit.model.ResultCursor;
+import com.cloudaudit.service.QueryExecutionRegistry;
+import com.cloudaudit.service.QueryJobService;
+import com.cloudaudit.service.QueryLimitExceededException;
+import com.cloudaudit.service.QueryPipelineService;
+import com.cloudaudit.service.ResultExportService;
+import com.cloudaudit.service.ResultPageService;
+import com.cloudaudit.service.SchemaCatalogService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.StringWriter;
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @Controller
 public class CloudAuditController {
     
-    private final AthenaService athenaService;
-    private final SqlQueryService sqlQueryService;
-    private final DataMaskingService dataMaskingService;
+    private static final String CBOR_VALUE = "application/cbor";
+    
+    private final QueryPipelineService pipelineService;
+    private final QueryJobService jobService;
+    private final SchemaCatalogService schemaCatalogService;
+    private final ResultExportService resultExportService;
+    private final ResultPageService resultPageService;
+    private final QueryExecutionRegistry executionRegistry;
     private final CloudAuditConfig config;
     
-    public CloudAuditController(AthenaService athenaService, 
-                               SqlQueryService sqlQueryService,
-                               DataMaskingService dataMaskingService,
+    public CloudAuditController(QueryPipelineService pipelineService,
+                               QueryJobService jobService,
+                               SchemaCatalogService schemaCatalogService,
+                               ResultExportService resultExportService,
+                               ResultPageService resultPageService,
+                               QueryExecutionRegistry executionRegistry,
                                CloudAuditConfig config) {
-        this.athenaService = athenaService;
-        this.sqlQueryService = sqlQueryService;
-        this.dataMaskingService = dataMaskingService;
+        this.pipelineService = pipelineService;
+        this.jobService = jobService;
+        this.schemaCatalogService = schemaCatalogService;
+        this.resultExportService = resultExportService;
+        this.resultPageService = resultPageService;
+        this.executionRegistry = executionRegistry;
         this.config = config;
     }
     
@@ -46,114 +79,293 @@ public class CloudAuditController {
     
     @PostMapping("/api/query")
     @ResponseBody
-    public ResponseEntity<QueryResponse> executeQuery(@RequestBody QueryRequest request) {
-        try {
-            // Log query without sensitive data
-            log.info("Processing query request");
-            
-            String initialQuery = String.format("SELECT * FROM %s LIMIT 100", config.getTableName());
-            String queryExecutionId = athenaService.executeQuery(initialQuery);
-            List<Map<String, String>> sampleData = athenaService.fetchQueryResults(queryExecutionId);
-            
-            if (sampleData.isEmpty()) {
+    public DeferredResult<ResponseEntity<QueryResponse>> executeQuery(@RequestBody QueryRequest request,
+                                                                      HttpServletRequest httpRequest) {
+        // Log query without sensitive data
+        log.info("Processing query request");
+        request.setCaller(caller(httpRequest));
+        
+        // Nothing is written until the answer is ready, so a closed connection goes unnoticed and the query
+        // only stops at the async timeout; clients that may leave early should use /api/query/stream
+        DeferredResult<ResponseEntity<QueryResponse>> result = new DeferredResult<>();
+        QueryCancellation cancellation = new QueryCancellation();
+        result.onTimeout(cancellation::cancel);
+        result.onError(error -> cancellation.cancel());
+        
+        // The servlet thread is released here and the response is written when the pipeline completes
+        pipelineService.executeAsync(request, cancellation)
+            .thenApply(response -> {
+                log.info("Query processed successfully");
+                return ResponseEntity.ok(response);
+            })
+            .exceptionally(e -> {
+                logFailure(e, cancellation);
                 QueryResponse response = new QueryResponse();
-                response.setError("No data found in the sample query");
+                response.setError(errorMessage(e));
                 return ResponseEntity.ok(response);
-            }
-            
-            String context = buildContext(sampleData);
-            String sqlQuery = sqlQueryService.generateSqlQuery(request.getUserQuery(), context);
-            
-            String queryExecId = athenaService.executeQuery(sqlQuery);
-            List<Map<String, String>> results = athenaService.fetchQueryResults(queryExecId);
-            
-            // SECURITY: Mask all sensitive data before returning
-            List<Map<String, String>> maskedResults = dataMaskingService.maskSensitiveData(results);
-            
-            QueryResponse response = new QueryResponse();
-            // SECURITY: Mask SQL query to hide database structure
-            response.setSqlQuery(dataMaskingService.maskSqlQuery(sqlQuery));
-            
-            if (maskedResults.isEmpty()) {
-                response.setResults("No data found matching your query.");
-                response.setDescription("");
-            } else {
-                boolean isPartial = maskedResults.size() > 100;
-                response.setPartial(isPartial);
-                response.setResults(formatResults(maskedResults, isPartial ? 100 : maskedResults.size()));
-                
-                String description = sqlQueryService.describeResults(
-                    request.getUserQuery(), 
-                    maskedResults, 
-                    isPartial
-                );
-                response.setDescription(description);
-                
-                if (isPartial) {
-                    response.setCsvData(convertToCsv(maskedResults));
+            })
+            .thenAccept(result::setResult);
+        
+        return result;
+    }
+    
+    @PostMapping(path = "/api/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamQuery(@RequestBody QueryRequest request, HttpServletRequest httpRequest) {
+        log.info("Processing streamed query request");
+        request.setCaller(caller(httpRequest));
+        SseEmitter emitter = new SseEmitter(config.getJobEventsTimeoutSeconds() * 1000L);
+        QueryCancellation cancellation = new QueryCancellation();
+        emitter.onTimeout(cancellation::cancel);
+        emitter.onError(error -> cancellation.cancel());
+        
+        // Emits stage events (athena_running about once a second while Athena runs), then "results"
+        // once rows are ready, then "description" chunks, then "done". The periodic writes are what
+        // notice a closed tab during the Athena wait, since nothing else is sent until results arrive.
+        pipelineService.executeStreaming(
+                request,
+                event -> sendOrCancel(emitter, event.getStage().name().toLowerCase(), event, cancellation),
+                response -> sendOrCancel(emitter, "results", response, cancellation),
+                chunk -> sendOrCancel(emitter, "description", Map.of("text", chunk), cancellation),
+                cancellation)
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    logFailure(error, cancellation);
+                    QueryResponse failure = new QueryResponse();
+                    failure.setError(errorMessage(error));
+                    send(emitter, "error", failure);
+                } else {
+                    send(emitter, "done", Map.of());
                 }
-            }
-            
-            log.info("Query processed successfully");
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            log.error("Error processing query: {}", e.getMessage());
-            QueryResponse response = new QueryResponse();
-            response.setError("Error processing query. Please try again.");
-            return ResponseEntity.ok(response);
-        }
+                emitter.complete();
+            });
+        
+        return emitter;
     }
     
-    private String buildContext(List<Map<String, String>> sampleData) {
-        StringBuilder context = new StringBuilder();
-        context.append("Database: [REDACTED]")
-               .append(", Table: [REDACTED]")
-               .append("\n\nColumns:\n");
+    @PostMapping(path = "/api/query/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> batchQuery(@RequestBody BatchQueryRequest batch, HttpServletRequest httpRequest) {
+        List<String> questions = batch.getQuestions();
+        if (questions == null || questions.isEmpty() || questions.size() > config.getBatchMaxQuestions()
+                || questions.stream().anyMatch(question -> question == null || question.isBlank())) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("Processing batch of {} queries", questions.size());
+        String caller = caller(httpRequest);
+        List<QueryRequest> requests = questions.stream()
+                .map(question -> {
+                    QueryRequest request = new QueryRequest(question, batch.isIncludeDescription());
+                    request.setCaller(caller);
+                    return request;
+                })
+                .toList();
         
-        if (!sampleData.isEmpty()) {
-            context.append(String.join("\n", sampleData.get(0).keySet()));
-            // SECURITY: Do not include sample data to avoid exposing sensitive info
+        SseEmitter emitter = new SseEmitter(config.getJobEventsTimeoutSeconds() * 1000L);
+        QueryCancellation cancellation = new QueryCancellation();
+        emitter.onTimeout(cancellation::cancel);
+        emitter.onError(error -> cancellation.cancel());
+        
+        // Emits one "result" per question as it completes, then "done"; a failed question does not end the batch
+        List<CompletableFuture<QueryResponse>> answers = pipelineService.executeBatch(requests, cancellation);
+        CompletableFuture<?>[] sent = new CompletableFuture<?>[answers.size()];
+        for (int i = 0; i < answers.size(); i++) {
+            int index = i;
+            sent[i] = answers.get(i)
+                .exceptionally(error -> {
+                    logFailure(error, cancellation);
+                    QueryResponse failure = new QueryResponse();
+                    failure.setError(errorMessage(error));
+                    return failure;
+                })
+                .thenAccept(response -> sendOrCancel(emitter, "result",
+                    new BatchQueryResult(index, questions.get(index), response), cancellation));
         }
+        CompletableFuture.allOf(sent).whenComplete((done, error) -> {
+            send(emitter, "done", Map.of());
+            emitter.complete();
+        });
         
-        return context.toString();
+        return ResponseEntity.ok(emitter);
+    }
+    
+    // Authenticated principal when a proxy or filter sets one, otherwise the client address
+    private String caller(HttpServletRequest httpRequest) {
+        return httpRequest.getRemoteUser() != null ? httpRequest.getRemoteUser() : httpRequest.getRemoteAddr();
+    }
+    
+    private String errorMessage(Throwable error) {
+        return QueryLimitExceededException.find(error)
+                .map(QueryLimitExceededException::getMessage)
+                .orElse("Error processing query. Please try again.");
+    }
+    
+    private void logFailure(Throwable error, QueryCancellation cancellation) {
+        if (cancellation.isCancelled()) {
+            log.info("Query abandoned by the client");
+        } else {
+            log.error("Error processing query: {}", error.getMessage());
+        }
+    }
+    
+    // A failed write is the first sign of a closed tab, so the remaining work is cancelled right away
+    private void sendOrCancel(SseEmitter emitter, String name, Object data, QueryCancellation cancellation) {
+        if (!send(emitter, name, data)) {
+            cancellation.cancel();
+        }
+    }
+    
+    private boolean send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; remaining events are dropped
+            log.debug("Dropping {} event for disconnected client", name);
+            return false;
+        }
+    }
+    
+    @PostMapping("/api/query/async")
+    @ResponseBody
+    public ResponseEntity<QueryJobStatus> submitQuery(@RequestBody QueryRequest request,
+                                                      HttpServletRequest httpRequest) {
+        request.setCaller(caller(httpRequest));
+        try {
+            QueryJob job = jobService.submit(request);
+            log.info("Submitted query job {}", job.getId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/query/" + job.getId()))
+                    .body(job.toStatus());
+        } catch (TaskRejectedException e) {
+            log.warn("Query job rejected, pipeline executor is saturated");
+            QueryJobStatus status = new QueryJobStatus();
+            status.setError("Too many queries in progress. Please try again later.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(status);
+        }
+    }
+    
+    @GetMapping("/api/query/{jobId}")
+    @ResponseBody
+    public ResponseEntity<QueryJobStatus> getQueryStatus(@PathVariable String jobId) {
+        return jobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toStatus()))
+                .orElse(ResponseEntity.notFound().build());
     }
     
-    private String formatResults(List<Map<String, String>> results, int limit) {
-        StringBuilder sb = new StringBuilder();
+    @DeleteMapping("/api/query/{jobId}")
+    @ResponseBody
+    public ResponseEntity<QueryJobStatus> cancelQuery(@PathVariable String jobId) {
+        return jobService.cancel(jobId)
+                .map(job -> {
+                    log.info("Cancelled query job {}", jobId);
+                    return ResponseEntity.ok(job.toStatus());
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping(path = "/api/query/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> streamQueryEvents(@PathVariable String jobId) {
+        Optional<QueryJob> job = jobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
         
-        if (!results.isEmpty()) {
-            sb.append(String.join(" | ", results.get(0).keySet())).append("\n");
-            sb.append("-".repeat(80)).append("\n");
-            
-            for (int i = 0; i < limit && i < results.size(); i++) {
-                sb.append(String.join(" | ", results.get(i).values())).append("\n");
+        SseEmitter emitter = new SseEmitter(config.getJobEventsTimeoutSeconds() * 1000L);
+        Consumer<QueryProgressEvent> subscriber = event -> {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(event.getStage().name().toLowerCase())
+                        .data(event));
+                if (event.getStage().isTerminal()) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the completion callback drops the subscription
+                emitter.completeWithError(e);
             }
-        }
+        };
         
-        return sb.toString();
+        emitter.onCompletion(() -> job.get().unsubscribe(subscriber));
+        emitter.onTimeout(() -> job.get().unsubscribe(subscriber));
+        emitter.onError(error -> job.get().unsubscribe(subscriber));
+        job.get().subscribe(subscriber);
+        
+        return ResponseEntity.ok(emitter);
     }
     
-    private String convertToCsv(List<Map<String, String>> results) {
+    @GetMapping("/api/results/{queryExecutionId}")
+    @ResponseBody
+    public ResponseEntity<ResultPage> getResultPage(@PathVariable String queryExecutionId,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "100") int pageSize) {
+        if (!executionRegistry.isKnown(queryExecutionId)) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        ResultCursor position;
         try {
-            StringWriter sw = new StringWriter();
-            
-            if (!results.isEmpty()) {
-                String[] headers = results.get(0).keySet().toArray(new String[0]);
-                
-                CSVPrinter printer = new CSVPrinter(sw, CSVFormat.DEFAULT.withHeader(headers));
-                
-                for (Map<String, String> row : results) {
-                    printer.printRecord(row.values());
-                }
-                
-                printer.flush();
+            position = ResultCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try {
+            return ResponseEntity.ok(resultPageService.getPage(queryExecutionId, position, pageSize));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
+    @GetMapping("/api/results/{queryExecutionId}/csv")
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> downloadCsv(@PathVariable String queryExecutionId,
+                                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        if (!executionRegistry.isKnown(queryExecutionId)) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+                resultExportService.writeCsv(queryExecutionId, gzipOut);
+                gzipOut.finish();
+            } else {
+                resultExportService.writeCsv(queryExecutionId, out);
             }
-            
-            return sw.toString();
-        } catch (Exception e) {
-            log.error("Error converting to CSV", e);
-            return "";
+        };
+        
+        String filename = "audit-results-" + queryExecutionId + (gzip ? ".csv.gz" : ".csv");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+    
+    // Full masked result as {"columns": [...], "rows": [[...]]}; CBOR when the client asks for it
+    @GetMapping(path = "/api/results/{queryExecutionId}/rows", produces = {MediaType.APPLICATION_JSON_VALUE, CBOR_VALUE})
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportRows(@PathVariable String queryExecutionId,
+                                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (!executionRegistry.isKnown(queryExecutionId)) {
+            return ResponseEntity.notFound().build();
         }
+        
+        boolean cbor = accept != null && accept.contains(CBOR_VALUE);
+        StreamingResponseBody body = out -> resultExportService.writeRows(queryExecutionId, out, cbor);
+        
+        return ResponseEntity.ok()
+                .contentType(cbor ? MediaType.parseMediaType(CBOR_VALUE) : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+    
+    @PostMapping("/api/schema/refresh")
+    @ResponseBody
+    public ResponseEntity<Void> refreshSchema() {
+        schemaCatalogService.invalidate();
+        return ResponseEntity.noContent().build();
     }
 }
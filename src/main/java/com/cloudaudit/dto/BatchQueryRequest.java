@@ -0,0 +1,13 @@
+package com.cloudaudit.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BatchQueryRequest {
+    private List<String> questions;
+    private boolean includeDescription = true;
+}
@@ -0,0 +1,15 @@
+package com.cloudaudit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Results arrive in completion order; the index ties each one back to its question
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchQueryResult {
+    private int index;
+    private String question;
+    private QueryResponse response;
+}
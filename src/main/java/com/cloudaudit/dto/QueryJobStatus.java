@@ -0,0 +1,17 @@
+package com.cloudaudit.dto;
+
+import com.cloudaudit.model.QueryStage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryJobStatus {
+    private String jobId;
+    private QueryStage stage;
+    private Long bytesScanned;
+    private QueryResponse result;
+    private String error;
+}
@@ -0,0 +1,14 @@
+package com.cloudaudit.dto;
+
+import com.cloudaudit.model.QueryStage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryProgressEvent {
+    private QueryStage stage;
+    private Long bytesScanned;
+}
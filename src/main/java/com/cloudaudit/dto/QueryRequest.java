@@ -1,12 +1,25 @@
 package com.cloudaudit.dto;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class QueryRequest {
     private String userQuery;
+    // Programmatic callers that only need rows can skip the Bedrock description round-trip
+    private boolean includeDescription = true;
+    // Set by the controller from the connection, never from the request body; keys fair admission
+    @JsonIgnore
+    private String caller;
+    
+    public QueryRequest(String userQuery) {
+        this.userQuery = userQuery;
+    }
+    
+    public QueryRequest(String userQuery, boolean includeDescription) {
+        this.userQuery = userQuery;
+        this.includeDescription = includeDescription;
+    }
 }
@@ -4,14 +4,20 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class QueryResponse {
     private String sqlQuery;
-    private String results;
+    // Header plus row arrays, serialized straight to the response by Jackson
+    private List<String> columns;
+    private List<String[]> rows;
     private String description;
     private boolean isPartial;
-    private String csvData;
+    private String queryExecutionId;
+    private String csvDownloadUrl;
+    private String nextPageUrl;
     private String error;
 }
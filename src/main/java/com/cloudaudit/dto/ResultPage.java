@@ -0,0 +1,18 @@
+package com.cloudaudit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultPage {
+    private String queryExecutionId;
+    private List<String> columns;
+    private List<String[]> rows;
+    // Null on the last page
+    private String nextCursor;
+}
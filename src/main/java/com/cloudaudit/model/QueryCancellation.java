@@ -0,0 +1,58 @@
+package com.cloudaudit.model;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Collects what a request has set in motion (Bedrock calls, Athena executions, the pipeline thread)
+// so a disconnected or timed-out request can release all of it at once
+@Slf4j
+public class QueryCancellation {
+    
+    private final List<Runnable> actions = new ArrayList<>();
+    private boolean cancelled;
+    
+    // Runs straight away if the request is already cancelled, so late registrations are not missed
+    public void onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                actions.add(action);
+                return;
+            }
+        }
+        run(action);
+    }
+    
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        onCancel(() -> future.cancel(true));
+        return future;
+    }
+    
+    public void cancel() {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            pending = new ArrayList<>(actions);
+            actions.clear();
+        }
+        pending.forEach(this::run);
+    }
+    
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+    
+    private void run(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            // One failed clean-up step must not keep the others from running
+            log.warn("Error while cancelling query: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.cloudaudit.model;
+
+import com.cloudaudit.dto.QueryJobStatus;
+import com.cloudaudit.dto.QueryProgressEvent;
+import com.cloudaudit.dto.QueryResponse;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+public class QueryJob {
+    
+    @Getter
+    private final String id;
+    @Getter
+    private final Instant createdAt = Instant.now();
+    @Getter
+    private final QueryCancellation cancellation = new QueryCancellation();
+    
+    // Only guards job state and subscriber queues; subscribers are called outside it, so a slow
+    // SSE client never holds up the pipeline thread, other subscribers or status readers
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Executor deliveryExecutor;
+    private final List<QueryProgressEvent> events = new ArrayList<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    
+    private QueryStage stage = QueryStage.QUEUED;
+    private Long bytesScanned;
+    private QueryResponse result;
+    private String error;
+    private Instant finishedAt;
+    
+    // Delivers events on the calling thread
+    public QueryJob(String id) {
+        this(id, Runnable::run);
+    }
+    
+    public QueryJob(String id, Executor deliveryExecutor) {
+        this.id = id;
+        this.deliveryExecutor = deliveryExecutor;
+        events.add(new QueryProgressEvent(QueryStage.QUEUED, null));
+    }
+    
+    // Events are queued per subscriber under the lock and delivered after it is released
+    public void publish(QueryProgressEvent event) {
+        List<Subscription> ready;
+        lock.lock();
+        try {
+            if (stage.isTerminal()) {
+                return;
+            }
+            ready = record(event);
+        } finally {
+            lock.unlock();
+        }
+        ready.forEach(this::deliver);
+    }
+    
+    // The result is set in the same critical section as the terminal stage, so readers never
+    // see a finished job without it
+    public void complete(QueryResponse response) {
+        List<Subscription> ready;
+        lock.lock();
+        try {
+            if (stage.isTerminal()) {
+                return;
+            }
+            result = response;
+            ready = record(new QueryProgressEvent(QueryStage.COMPLETED, null));
+        } finally {
+            lock.unlock();
+        }
+        ready.forEach(this::deliver);
+    }
+    
+    public void fail(String message) {
+        List<Subscription> ready;
+        lock.lock();
+        try {
+            if (stage.isTerminal()) {
+                return;
+            }
+            error = message;
+            ready = record(new QueryProgressEvent(QueryStage.FAILED, null));
+        } finally {
+            lock.unlock();
+        }
+        ready.forEach(this::deliver);
+    }
+    
+    // Replays events published so far, then delivers new ones as they happen, in order
+    public void subscribe(Consumer<QueryProgressEvent> subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        lock.lock();
+        try {
+            events.forEach(subscription::enqueue);
+            if (!stage.isTerminal()) {
+                subscriptions.add(subscription);
+            }
+        } finally {
+            lock.unlock();
+        }
+        deliver(subscription);
+    }
+    
+    public void unsubscribe(Consumer<QueryProgressEvent> subscriber) {
+        lock.lock();
+        try {
+            subscriptions.removeIf(subscription -> {
+                if (subscription.subscriber != subscriber) {
+                    return false;
+                }
+                subscription.pending.clear();
+                subscription.cancelled = true;
+                return true;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public boolean isFinishedBefore(Instant cutoff) {
+        lock.lock();
+        try {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public QueryJobStatus toStatus() {
+        lock.lock();
+        try {
+            return new QueryJobStatus(id, stage, bytesScanned, result, error);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Called with the lock held; returns the subscriptions that need a drain started
+    private List<Subscription> record(QueryProgressEvent event) {
+        stage = event.getStage();
+        if (event.getBytesScanned() != null) {
+            bytesScanned = event.getBytesScanned();
+        }
+        if (stage.isTerminal()) {
+            finishedAt = Instant.now();
+        }
+        // Repeated progress for the same stage (ATHENA_RUNNING about once a second) collapses into
+        // one replayed event carrying the latest bytes scanned, so the history stays one per stage
+        QueryProgressEvent last = events.get(events.size() - 1);
+        if (last.getStage() == stage && !stage.isTerminal()) {
+            events.set(events.size() - 1, new QueryProgressEvent(stage, bytesScanned));
+        } else {
+            events.add(event);
+        }
+        
+        List<Subscription> ready = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.enqueue(event)) {
+                ready.add(subscription);
+            }
+        }
+        if (stage.isTerminal()) {
+            subscriptions.clear();
+        }
+        return ready;
+    }
+    
+    private void deliver(Subscription subscription) {
+        deliveryExecutor.execute(() -> drain(subscription));
+    }
+    
+    // At most one drain runs per subscription, which keeps its events in order
+    private void drain(Subscription subscription) {
+        while (true) {
+            QueryProgressEvent next;
+            lock.lock();
+            try {
+                next = subscription.cancelled ? null : subscription.pending.pollFirst();
+                if (next == null) {
+                    subscription.draining = false;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            subscription.subscriber.accept(next);
+        }
+    }
+    
+    // Guarded by the job lock
+    private static final class Subscription {
+        private final Consumer<QueryProgressEvent> subscriber;
+        private final Deque<QueryProgressEvent> pending = new ArrayDeque<>();
+        private boolean draining = true;
+        private boolean cancelled;
+        
+        Subscription(Consumer<QueryProgressEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+        
+        // True when the caller has to start a drain for this subscription
+        boolean enqueue(QueryProgressEvent event) {
+            pending.addLast(event);
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+    }
+}
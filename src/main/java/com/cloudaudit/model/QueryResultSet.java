@@ -0,0 +1,125 @@
+package com.cloudaudit.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class QueryResultSet {
+    
+    // Low-cardinality CloudTrail columns whose values are shared across rows
+    private static final Set<String> DICTIONARY_COLUMNS = Set.of(
+        "eventname", "eventsource", "eventtype", "eventversion", "eventcategory",
+        "awsregion", "errorcode", "readonly", "managementevent", "recipientaccountid"
+    );
+    
+    // A column that exceeds this many distinct values stops being dictionary encoded
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+    
+    private static final QueryResultSet EMPTY = new QueryResultSet(Collections.emptyList(), Collections.emptyList());
+    
+    private final List<String> columns;
+    private final List<String[]> rows;
+    
+    public QueryResultSet(List<String> columns, List<String[]> rows) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rows = Collections.unmodifiableList(rows);
+    }
+    
+    public static QueryResultSet empty() {
+        return EMPTY;
+    }
+    
+    public static Builder builder(List<String> columns) {
+        return new Builder(columns);
+    }
+    
+    public List<String> getColumns() {
+        return columns;
+    }
+    
+    public List<String[]> getRows() {
+        return rows;
+    }
+    
+    public String[] getRow(int index) {
+        return rows.get(index);
+    }
+    
+    public int size() {
+        return rows.size();
+    }
+    
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+    
+    public int indexOf(String column) {
+        return columns.indexOf(column);
+    }
+    
+    public String getValue(int rowIndex, String column) {
+        int columnIndex = indexOf(column);
+        if (columnIndex < 0) {
+            throw new IllegalArgumentException("Unknown column: " + column);
+        }
+        return rows.get(rowIndex)[columnIndex];
+    }
+    
+    public QueryResultSet head(int limit) {
+        if (limit >= rows.size()) {
+            return this;
+        }
+        return new QueryResultSet(columns, rows.subList(0, limit));
+    }
+    
+    public static final class Builder {
+        private final List<String> columns;
+        private final List<String[]> rows = new ArrayList<>();
+        private final List<Map<String, String>> dictionaries;
+        
+        private Builder(List<String> columns) {
+            this.columns = new ArrayList<>(columns);
+            this.dictionaries = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                dictionaries.add(DICTIONARY_COLUMNS.contains(column.toLowerCase()) ? new HashMap<>() : null);
+            }
+        }
+        
+        public Builder addRow(String[] row) {
+            for (int i = 0; i < row.length && i < dictionaries.size(); i++) {
+                if (dictionaries.get(i) != null && row[i] != null) {
+                    row[i] = intern(i, row[i]);
+                }
+            }
+            rows.add(row);
+            return this;
+        }
+        
+        public int size() {
+            return rows.size();
+        }
+        
+        public QueryResultSet build() {
+            return new QueryResultSet(columns, rows);
+        }
+        
+        private String intern(int column, String value) {
+            Map<String, String> dictionary = dictionaries.get(column);
+            String existing = dictionary.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            
+            if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+                dictionaries.set(column, null);
+                return value;
+            }
+            
+            dictionary.put(value, value);
+            return value;
+        }
+    }
+}
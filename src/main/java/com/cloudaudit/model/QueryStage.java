@@ -0,0 +1,16 @@
+package com.cloudaudit.model;
+
+public enum QueryStage {
+    QUEUED,
+    GENERATING_SQL,
+    SQL_GENERATED,
+    ATHENA_RUNNING,
+    RESULTS_READY,
+    DESCRIPTION_READY,
+    COMPLETED,
+    FAILED;
+    
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloudaudit.model;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in a result set: an Athena page token (null for the first page) plus rows to skip within it.
+// Encoded opaquely so clients never depend on Athena's token format
+@Value
+public class ResultCursor {
+    String pageToken;
+    int offset;
+    
+    public static ResultCursor start() {
+        return new ResultCursor(null, 0);
+    }
+    
+    public String encode() {
+        String raw = offset + ":" + (pageToken == null ? "" : pageToken);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ResultCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return start();
+        }
+        
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            int offset = Integer.parseInt(raw.substring(0, separator));
+            String pageToken = raw.substring(separator + 1);
+            if (offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ResultCursor(pageToken.isEmpty() ? null : pageToken, offset);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
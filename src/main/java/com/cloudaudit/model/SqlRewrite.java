@@ -0,0 +1,17 @@
+package com.cloudaudit.model;
+
+import lombok.Value;
+
+@Value
+public class SqlRewrite {
+    String sql;
+    // Days of partitions the injected predicate allows, null when no time range was injected
+    Integer partitionDays;
+    // True when the query restricts partition keys at all, whether the model or the rewriter wrote the predicate
+    boolean partitionFiltered;
+    boolean limitAdded;
+    
+    public boolean isPartitionPruned() {
+        return partitionDays != null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.cloudaudit.model;
+
+import lombok.Value;
+
+@Value
+public class StreamedCompletion {
+    String text;
+    // Null when the model produced no text
+    Long timeToFirstTokenMillis;
+    long durationMillis;
+    // Reported by Bedrock when the stream runs to the end, estimated from text length when stopped early
+    int outputTokens;
+    boolean stoppedEarly;
+    
+    public double getTokensPerSecond() {
+        return durationMillis == 0 ? 0 : outputTokens * 1000.0 / durationMillis;
+    }
+}
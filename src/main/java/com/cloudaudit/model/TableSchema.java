@@ -0,0 +1,30 @@
+package com.cloudaudit.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Value
+public class TableSchema {
+    List<TableColumn> columns;
+    List<TableColumn> partitionKeys;
+    Instant loadedAt;
+    
+    public List<TableColumn> getAllColumns() {
+        List<TableColumn> all = new ArrayList<>(columns);
+        all.addAll(partitionKeys);
+        return all;
+    }
+    
+    public boolean isEmpty() {
+        return columns.isEmpty() && partitionKeys.isEmpty();
+    }
+    
+    @Value
+    public static class TableColumn {
+        String name;
+        String type;
+    }
+}
@@ -0,0 +1,80 @@
+package com.cloudaudit.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Caps how many async calls are outstanding at once; later calls start as earlier ones complete
+final class AsyncLimiter {
+    
+    private final int limit;
+    // Guarded by this
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+    
+    // A limit of 0 or less starts every call straight away
+    AsyncLimiter(int limit) {
+        this.limit = limit;
+    }
+    
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        if (limit <= 0) {
+            return call.get();
+        }
+        
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> start(call, result);
+        synchronized (this) {
+            if (running >= limit) {
+                waiting.addLast(start);
+                return result;
+            }
+            running++;
+        }
+        start.run();
+        return result;
+    }
+    
+    synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+    
+    private <T> void start(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+        // Cancelled while waiting for a slot; hand the slot to the next call
+        if (result.isDone()) {
+            release();
+            return;
+        }
+        
+        CompletableFuture<T> pending;
+        try {
+            pending = call.get();
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+        
+        AsyncRetry.linkCancellation(result, pending);
+        pending.whenComplete((value, error) -> {
+            release();
+            if (error != null) {
+                result.completeExceptionally(AsyncRetry.unwrap(error));
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+    
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                running--;
+                return;
+            }
+        }
+        // The slot passes straight to the next waiting call
+        next.run();
+    }
+}
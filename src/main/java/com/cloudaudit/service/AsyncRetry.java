@@ -0,0 +1,104 @@
+package com.cloudaudit.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// @Retryable only wraps blocking calls, so the async variants retry with the same policy here
+final class AsyncRetry {
+    
+    private AsyncRetry() {
+    }
+    
+    static <T> CompletableFuture<T> withRetry(Supplier<CompletableFuture<T>> action,
+                                              Predicate<Throwable> retryable,
+                                              int maxAttempts,
+                                              long delayMillis,
+                                              double multiplier) {
+        return withRetry(action, retryable, maxAttempts, delayMillis, multiplier, () -> { });
+    }
+    
+    // onRetry runs once for every attempt that is about to be repeated
+    static <T> CompletableFuture<T> withRetry(Supplier<CompletableFuture<T>> action,
+                                              Predicate<Throwable> retryable,
+                                              int maxAttempts,
+                                              long delayMillis,
+                                              double multiplier,
+                                              Runnable onRetry) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(action, retryable, 1, maxAttempts, delayMillis, multiplier, onRetry, result);
+        return result;
+    }
+    
+    private static <T> void attempt(Supplier<CompletableFuture<T>> action,
+                                    Predicate<Throwable> retryable,
+                                    int attempt,
+                                    int maxAttempts,
+                                    long delayMillis,
+                                    double multiplier,
+                                    Runnable onRetry,
+                                    CompletableFuture<T> result) {
+        if (result.isDone()) {
+            return;
+        }
+        
+        CompletableFuture<T> call;
+        try {
+            call = action.get();
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        
+        // Cancelling the caller's future abandons the in-flight attempt as well
+        CompletableFuture<T> inFlight = call;
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                inFlight.cancel(true);
+            }
+        });
+        
+        inFlight.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            
+            Throwable cause = unwrap(error);
+            // A cancelled caller gets no further attempt, so it is not counted as a retry either
+            if (result.isDone()) {
+                return;
+            }
+            if (attempt >= maxAttempts || !retryable.test(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            
+            onRetry.run();
+            long nextDelay = (long) (delayMillis * multiplier);
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() ->
+                attempt(action, retryable, attempt + 1, maxAttempts, nextDelay, multiplier, onRetry, result));
+        });
+    }
+    
+    // Derived stages (thenApply and friends) do not pass cancellation back to the stage they came from
+    static <T> CompletableFuture<T> linkCancellation(CompletableFuture<T> downstream, CompletableFuture<?> upstream) {
+        downstream.whenComplete((value, error) -> {
+            if (downstream.isCancelled()) {
+                upstream.cancel(true);
+            }
+        });
+        return downstream;
+    }
+    
+    static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,144 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Bounds how many generated queries run in Athena at once, below the workgroup's concurrency
+// quota. Waiting callers are served round-robin, so one caller's burst cannot starve the others.
+@Slf4j
+@Component
+public class AthenaAdmissionControl {
+    
+    private static final String ANONYMOUS = "anonymous";
+    
+    private final CloudAuditConfig config;
+    // All fields below are guarded by this
+    private final Map<String, Deque<CompletableFuture<Permit>>> waiting = new HashMap<>();
+    private final Deque<String> turns = new ArrayDeque<>();
+    private int running;
+    private int queued;
+    
+    public AthenaAdmissionControl(CloudAuditConfig config, MeterRegistry registry) {
+        this.config = config;
+        Gauge.builder("cloudaudit.athena.admission.running", this, AthenaAdmissionControl::getRunningCount)
+                .description("Generated queries holding an Athena admission permit")
+                .register(registry);
+        Gauge.builder("cloudaudit.athena.admission.queued", this, AthenaAdmissionControl::getQueuedCount)
+                .description("Generated queries waiting for an Athena admission permit")
+                .register(registry);
+    }
+    
+    // The permit must be released once the execution reaches a terminal state
+    public CompletableFuture<Permit> acquire(String caller) {
+        if (config.getAthenaMaxConcurrentQueries() <= 0) {
+            return CompletableFuture.completedFuture(new Permit(false));
+        }
+        
+        String key = caller == null || caller.isBlank() ? ANONYMOUS : caller;
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        
+        synchronized (this) {
+            if (running < config.getAthenaMaxConcurrentQueries() && queued == 0) {
+                running++;
+                return CompletableFuture.completedFuture(new Permit(true));
+            }
+            if (queued >= config.getAthenaAdmissionQueueCapacity()) {
+                log.warn("Athena admission queue is full ({} waiting), rejecting query", queued);
+                return CompletableFuture.failedFuture(new QueryLimitExceededException(
+                    "Too many queries are waiting to run. Please try again later."));
+            }
+            
+            Deque<CompletableFuture<Permit>> callerQueue = waiting.computeIfAbsent(key, k -> new ArrayDeque<>());
+            if (callerQueue.isEmpty()) {
+                turns.addLast(key);
+            }
+            callerQueue.addLast(waiter);
+            queued++;
+        }
+        
+        // Abandoned waiters (timed out or cancelled by the caller) are skipped when a permit frees up
+        CompletableFuture.delayedExecutor(config.getAthenaAdmissionTimeoutSeconds(), TimeUnit.SECONDS)
+            .execute(() -> waiter.completeExceptionally(new QueryLimitExceededException(
+                "Too many queries are running. Please try again later.")));
+        waiter.whenComplete((permit, error) -> {
+            if (error != null) {
+                forget(key, waiter);
+            }
+        });
+        return waiter;
+    }
+    
+    public synchronized int getRunningCount() {
+        return running;
+    }
+    
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+    
+    private synchronized void forget(String key, CompletableFuture<Permit> waiter) {
+        Deque<CompletableFuture<Permit>> callerQueue = waiting.get(key);
+        if (callerQueue != null && callerQueue.remove(waiter)) {
+            queued--;
+            if (callerQueue.isEmpty()) {
+                waiting.remove(key);
+                turns.remove(key);
+            }
+        }
+    }
+    
+    private void release() {
+        CompletableFuture<Permit> next = null;
+        Permit permit = new Permit(true);
+        
+        synchronized (this) {
+            running--;
+            while (next == null && !turns.isEmpty()) {
+                String key = turns.pollFirst();
+                Deque<CompletableFuture<Permit>> callerQueue = waiting.get(key);
+                CompletableFuture<Permit> candidate = callerQueue.pollFirst();
+                queued--;
+                
+                if (callerQueue.isEmpty()) {
+                    waiting.remove(key);
+                } else {
+                    turns.addLast(key);
+                }
+                if (!candidate.isDone()) {
+                    next = candidate;
+                    running++;
+                }
+            }
+        }
+        
+        // Completed outside the lock; a waiter that timed out in between hands the permit straight back
+        if (next != null && !next.complete(permit)) {
+            permit.release();
+        }
+    }
+    
+    public final class Permit {
+        private final AtomicBoolean held;
+        
+        private Permit(boolean counted) {
+            this.held = new AtomicBoolean(counted);
+        }
+        
+        public void release() {
+            if (held.compareAndSet(true, false)) {
+                AthenaAdmissionControl.this.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Avoids rescanning S3 for repeated SQL: identical statements reuse the prior execution ID,
+// and small completed result sets are served from memory (or disk, when spilling is enabled)
+@Slf4j
+@Component
+public class AthenaResultCache {
+    
+    // Rough per-row and per-value overhead of the String[] layout on a 64-bit JVM
+    private static final long ROW_OVERHEAD_BYTES = 24;
+    private static final long VALUE_OVERHEAD_BYTES = 48;
+    
+    private final CloudAuditConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Execution> executionsBySql = new HashMap<>();
+    private final LinkedHashMap<String, CachedResults> results = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, SpilledResults> spilled = new LinkedHashMap<>();
+    private final Path spillDirectory;
+    
+    private long cachedBytes;
+    private long spilledBytes;
+    
+    public AthenaResultCache(CloudAuditConfig config) {
+        this.config = config;
+        this.spillDirectory = createSpillDirectory(config.getResultCacheSpillDirectory());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            spilled.values().forEach(entry -> deleteQuietly(entry.getPath()));
+            spilled.clear();
+            if (spillDirectory != null) {
+                deleteQuietly(spillDirectory);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Optional<String> findExecution(String sql) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        
+        String key = normalizeSql(sql);
+        lock.lock();
+        try {
+            Execution execution = executionsBySql.get(key);
+            if (execution == null) {
+                return Optional.empty();
+            }
+            if (isExpired(execution.getStartedAt())) {
+                executionsBySql.remove(key);
+                return Optional.empty();
+            }
+            return Optional.of(execution.getQueryExecutionId());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void recordExecution(String sql, String queryExecutionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        
+        lock.lock();
+        try {
+            executionsBySql.values().removeIf(execution -> isExpired(execution.getStartedAt()));
+            executionsBySql.put(normalizeSql(sql), new Execution(queryExecutionId, Instant.now()));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Failed executions must not be handed to the next caller with the same SQL
+    public void invalidateExecution(String queryExecutionId) {
+        lock.lock();
+        try {
+            executionsBySql.values().removeIf(execution -> execution.getQueryExecutionId().equals(queryExecutionId));
+            removeResults(queryExecutionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Optional<QueryResultSet> getResults(String queryExecutionId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        
+        SpilledResults spill;
+        lock.lock();
+        try {
+            CachedResults cached = results.get(queryExecutionId);
+            if (cached != null) {
+                if (!isExpired(cached.getCachedAt())) {
+                    return Optional.of(cached.getResults());
+                }
+                removeResults(queryExecutionId);
+                return Optional.empty();
+            }
+            
+            spill = spilled.get(queryExecutionId);
+            if (spill == null) {
+                return Optional.empty();
+            }
+            if (isExpired(spill.getCachedAt())) {
+                removeResults(queryExecutionId);
+                return Optional.empty();
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        try {
+            return Optional.of(readSpill(spill.getPath()));
+        } catch (IOException e) {
+            log.warn("Failed to read spilled results, dropping entry: {}", e.getMessage());
+            lock.lock();
+            try {
+                removeResults(queryExecutionId);
+            } finally {
+                lock.unlock();
+            }
+            return Optional.empty();
+        }
+    }
+    
+    // Only complete result sets belong here; a truncated preview would be served as the full result
+    public void putResults(String queryExecutionId, QueryResultSet resultSet) {
+        if (!isEnabled()) {
+            return;
+        }
+        
+        long size = estimateBytes(resultSet);
+        if (size > config.getResultCacheMaxBytes()) {
+            return;
+        }
+        
+        List<Map.Entry<String, CachedResults>> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            removeResults(queryExecutionId);
+            results.put(queryExecutionId, new CachedResults(resultSet, size, Instant.now()));
+            cachedBytes += size;
+            
+            Iterator<Map.Entry<String, CachedResults>> eldest = results.entrySet().iterator();
+            while (cachedBytes > config.getResultCacheMaxBytes() && eldest.hasNext()) {
+                Map.Entry<String, CachedResults> entry = eldest.next();
+                eldest.remove();
+                cachedBytes -= entry.getValue().getSizeBytes();
+                if (!isExpired(entry.getValue().getCachedAt())) {
+                    evicted.add(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        // Disk writes happen outside the lock so readers never wait on I/O
+        if (spillDirectory != null) {
+            evicted.forEach(entry -> spill(entry.getKey(), entry.getValue()));
+        }
+    }
+    
+    static String normalizeSql(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        boolean inLiteral = false;
+        boolean pendingSpace = false;
+        
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            
+            if (inLiteral) {
+                normalized.append(c);
+                if (c == '\'') {
+                    inLiteral = false;
+                }
+                continue;
+            }
+            
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            
+            // String literals are compared exactly; everything else is case-insensitive
+            if (c == '\'') {
+                inLiteral = true;
+                normalized.append(c);
+            } else {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        
+        while (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) == ';') {
+            normalized.setLength(normalized.length() - 1);
+        }
+        return normalized.toString().trim();
+    }
+    
+    static long estimateBytes(QueryResultSet resultSet) {
+        long bytes = 0;
+        for (String[] row : resultSet.getRows()) {
+            bytes += ROW_OVERHEAD_BYTES;
+            for (String value : row) {
+                bytes += value == null ? 8 : VALUE_OVERHEAD_BYTES + value.length();
+            }
+        }
+        return bytes;
+    }
+    
+    private boolean isEnabled() {
+        return config.getResultCacheTtlMinutes() > 0;
+    }
+    
+    private boolean isExpired(Instant since) {
+        Duration ttl = Duration.ofMinutes(config.getResultCacheTtlMinutes());
+        return !since.plus(ttl).isAfter(Instant.now());
+    }
+    
+    // Caller holds the lock
+    private void removeResults(String queryExecutionId) {
+        CachedResults cached = results.remove(queryExecutionId);
+        if (cached != null) {
+            cachedBytes -= cached.getSizeBytes();
+        }
+        
+        SpilledResults spill = spilled.remove(queryExecutionId);
+        if (spill != null) {
+            spilledBytes -= spill.getSizeBytes();
+            deleteQuietly(spill.getPath());
+        }
+    }
+    
+    private void spill(String queryExecutionId, CachedResults cached) {
+        try {
+            Path path = Files.createTempFile(spillDirectory, "results-", ".bin.gz");
+            try (OutputStream out = Files.newOutputStream(path)) {
+                writeSpill(cached.getResults(), out);
+            }
+            long size = Files.size(path);
+            
+            lock.lock();
+            try {
+                // Re-cached or invalidated while the file was being written
+                if (results.containsKey(queryExecutionId) || isExpired(cached.getCachedAt())) {
+                    deleteQuietly(path);
+                    return;
+                }
+                
+                spilled.put(queryExecutionId, new SpilledResults(path, size, cached.getCachedAt()));
+                spilledBytes += size;
+                
+                Iterator<SpilledResults> oldest = spilled.values().iterator();
+                while (spilledBytes > config.getResultCacheSpillMaxBytes() && oldest.hasNext()) {
+                    SpilledResults entry = oldest.next();
+                    oldest.remove();
+                    spilledBytes -= entry.getSizeBytes();
+                    deleteQuietly(entry.getPath());
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to spill cached results to disk: {}", e.getMessage());
+        }
+    }
+    
+    static void writeSpill(QueryResultSet resultSet, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(target)));
+        out.writeInt(resultSet.getColumns().size());
+        for (String column : resultSet.getColumns()) {
+            writeString(out, column);
+        }
+        out.writeInt(resultSet.size());
+        for (String[] row : resultSet.getRows()) {
+            out.writeInt(row.length);
+            for (String value : row) {
+                writeString(out, value);
+            }
+        }
+        out.flush();
+        out.close();
+    }
+    
+    static QueryResultSet readSpill(InputStream source) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(source)))) {
+            int columnCount = in.readInt();
+            List<String> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                columns.add(readString(in));
+            }
+            
+            QueryResultSet.Builder builder = QueryResultSet.builder(columns);
+            int rowCount = in.readInt();
+            for (int r = 0; r < rowCount; r++) {
+                String[] row = new String[in.readInt()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = readString(in);
+                }
+                builder.addRow(row);
+            }
+            return builder.build();
+        }
+    }
+    
+    private static QueryResultSet readSpill(Path path) throws IOException {
+        return readSpill(Files.newInputStream(path));
+    }
+    
+    // Length-prefixed so values may contain any character; -1 marks a null value
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static Path createSpillDirectory(String location) {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        
+        try {
+            Path parent = Paths.get(location);
+            Files.createDirectories(parent);
+            // SECURITY: Spilled results are unmasked, so the directory is readable by the owner only
+            try {
+                return Files.createTempDirectory(parent, "athena-results-",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } catch (UnsupportedOperationException e) {
+                return Files.createTempDirectory(parent, "athena-results-");
+            }
+        } catch (IOException e) {
+            log.warn("Result cache spill directory unavailable, spilling disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Failed to delete spilled results {}", path);
+        }
+    }
+    
+    @Value
+    private static class Execution {
+        String queryExecutionId;
+        Instant startedAt;
+    }
+    
+    @Value
+    private static class CachedResults {
+        QueryResultSet results;
+        long sizeBytes;
+        Instant cachedAt;
+    }
+    
+    @Value
+    private static class SpilledResults {
+        Path path;
+        long sizeBytes;
+        Instant cachedAt;
+    }
+}
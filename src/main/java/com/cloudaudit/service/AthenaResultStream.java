@@ -0,0 +1,137 @@
+package com.cloudaudit.service;
+
+import software.amazon.awssdk.services.athena.model.ColumnInfo;
+import software.amazon.awssdk.services.athena.model.Datum;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+import software.amazon.awssdk.services.athena.model.Row;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class AthenaResultStream implements Iterator<String[]>, AutoCloseable {
+    
+    private final QueryExecution execution;
+    private final Iterator<GetQueryResultsResponse> pages;
+    private final Executor prefetchExecutor;
+    private final List<String> columns;
+    
+    private Iterator<Row> currentRows;
+    private CompletableFuture<GetQueryResultsResponse> nextPage;
+    private boolean closed;
+    
+    AthenaResultStream(QueryExecution execution,
+                       Iterator<GetQueryResultsResponse> pages,
+                       Executor prefetchExecutor) {
+        this.execution = execution;
+        this.pages = pages;
+        this.prefetchExecutor = prefetchExecutor;
+        
+        if (!pages.hasNext()) {
+            this.columns = Collections.emptyList();
+            this.currentRows = Collections.emptyIterator();
+            return;
+        }
+        
+        GetQueryResultsResponse firstPage = pages.next();
+        this.columns = firstPage.resultSet().resultSetMetadata().columnInfo().stream()
+                .map(ColumnInfo::name)
+                .collect(Collectors.toList());
+        this.currentRows = firstPage.resultSet().rows().iterator();
+        
+        // The first row of the first page repeats the column names
+        if (currentRows.hasNext()) {
+            currentRows.next();
+        }
+        
+        prefetchNextPage();
+    }
+    
+    public List<String> getColumns() {
+        return columns;
+    }
+    
+    public QueryExecution getExecution() {
+        return execution;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (!closed && !currentRows.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            
+            GetQueryResultsResponse page = awaitNextPage();
+            if (page == null) {
+                nextPage = null;
+                return false;
+            }
+            
+            currentRows = page.resultSet().rows().iterator();
+            prefetchNextPage();
+        }
+        
+        return !closed;
+    }
+    
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        
+        return toValues(currentRows.next(), columns.size());
+    }
+    
+    static String[] toValues(Row row, int columnCount) {
+        List<Datum> data = row.data();
+        String[] values = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            values[i] = i < data.size() ? data.get(i).varCharValue() : "";
+        }
+        return values;
+    }
+    
+    public Stream<String[]> stream() {
+        Spliterator<String[]> spliterator = Spliterators.spliteratorUnknownSize(
+            this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+    }
+    
+    private void prefetchNextPage() {
+        // Only one fetch is ever outstanding, so the page iterator is never used concurrently
+        nextPage = CompletableFuture.supplyAsync(
+            () -> pages.hasNext() ? pages.next() : null, prefetchExecutor);
+    }
+    
+    private GetQueryResultsResponse awaitNextPage() {
+        try {
+            return nextPage.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
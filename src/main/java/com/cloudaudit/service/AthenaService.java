@@ -1,107 +1,321 @@
 package com.cloudaudit.service;
 
 import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.model.TableSchema.TableColumn;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.athena.AthenaAsyncClient;
 import software.amazon.awssdk.services.athena.AthenaClient;
 import software.amazon.awssdk.services.athena.model.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class AthenaService {
     
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+    
     private final AthenaClient athenaClient;
+    private final AthenaAsyncClient athenaAsyncClient;
     private final CloudAuditConfig config;
+    private final QueryCompletionPoller completionPoller;
+    private final AthenaResultCache resultCache;
+    private final PipelineMetrics metrics;
+    private final ExecutorService prefetchExecutor;
+    private final SingleFlight<String, String> queryStarts;
+    // Coalesced starts and result reuse hand one execution to several requests; counts requests per running execution
+    private final Map<String, AtomicInteger> executionHolders = new ConcurrentHashMap<>();
     
-    public AthenaService(AthenaClient athenaClient, CloudAuditConfig config) {
+    public AthenaService(AthenaClient athenaClient, 
+                        AthenaAsyncClient athenaAsyncClient,
+                        CloudAuditConfig config,
+                        QueryCompletionPoller completionPoller,
+                        AthenaResultCache resultCache,
+                        PipelineMetrics metrics) {
         this.athenaClient = athenaClient;
+        this.athenaAsyncClient = athenaAsyncClient;
         this.config = config;
+        this.completionPoller = completionPoller;
+        this.resultCache = resultCache;
+        this.metrics = metrics;
+        this.queryStarts = new SingleFlight<>("athena.start", metrics);
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.prefetchExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "athena-prefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
     }
     
     @Retryable(
         retryFor = {AthenaException.class},
+        label = "athena.start",
         maxAttempts = 3,
         backoff = @Backoff(delay = 2000, multiplier = 2)
     )
     public String executeQuery(String query) {
+        Optional<String> reusable = resultCache.findExecution(query);
+        if (reusable.isPresent()) {
+            log.info("Reusing recent Athena execution for identical query");
+            return hold(reusable.get());
+        }
+        
         try {
-            StartQueryExecutionRequest request = StartQueryExecutionRequest.builder()
-                    .queryString(query)
-                    .queryExecutionContext(QueryExecutionContext.builder()
-                            .database(config.getDatabaseName())
-                            .build())
-                    .resultConfiguration(ResultConfiguration.builder()
-                            .outputLocation(config.getS3OutputLocation())
-                            .build())
-                    .build();
-            
-            StartQueryExecutionResponse response = athenaClient.startQueryExecution(request);
-            return response.queryExecutionId();
+            // Identical SQL started concurrently shares one execution
+            return hold(queryStarts.execute(AthenaResultCache.normalizeSql(query), () -> {
+                StartQueryExecutionResponse response = athenaClient.startQueryExecution(startRequest(query));
+                resultCache.recordExecution(query, response.queryExecutionId());
+                return response.queryExecutionId();
+            }));
         } catch (AthenaException e) {
             log.error("Error executing Athena query", e);
             throw e;
         }
     }
     
-    public List<Map<String, String>> fetchQueryResults(String queryExecutionId) throws InterruptedException {
-        waitForQueryToComplete(queryExecutionId);
+    public CompletableFuture<String> executeQueryAsync(String query) {
+        Optional<String> reusable = resultCache.findExecution(query);
+        if (reusable.isPresent()) {
+            log.info("Reusing recent Athena execution for identical query");
+            return CompletableFuture.completedFuture(hold(reusable.get()));
+        }
         
-        GetQueryResultsRequest resultRequest = GetQueryResultsRequest.builder()
+        StartQueryExecutionRequest request = startRequest(query);
+        
+        return queryStarts.executeAsync(AthenaResultCache.normalizeSql(query), () -> AsyncRetry.withRetry(
+                () -> athenaAsyncClient.startQueryExecution(request),
+                AthenaException.class::isInstance,
+                3, 2000, 2,
+                () -> metrics.recordRetries("athena.start", 1))
+            .thenApply(StartQueryExecutionResponse::queryExecutionId)
+            .whenComplete((id, error) -> {
+                if (error != null) {
+                    log.error("Error executing Athena query", error);
+                } else {
+                    resultCache.recordExecution(query, id);
+                }
+            }))
+            .thenApply(this::hold);
+    }
+    
+    // Called when the request that started or joined the execution is abandoned. The query is only
+    // stopped once no other request still waits for it, and a finished query is left alone.
+    public void cancelQuery(String queryExecutionId) {
+        AtomicInteger holders = executionHolders.get(queryExecutionId);
+        if (holders == null || holders.decrementAndGet() > 0) {
+            return;
+        }
+        executionHolders.remove(queryExecutionId, holders);
+        
+        if (completionPoller.abandon(queryExecutionId)) {
+            resultCache.invalidateExecution(queryExecutionId);
+        }
+        log.info("Stopping abandoned Athena query {}", queryExecutionId);
+        athenaAsyncClient.stopQueryExecution(StopQueryExecutionRequest.builder()
                 .queryExecutionId(queryExecutionId)
-                .build();
+                .build())
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    log.warn("Failed to stop Athena query {}: {}", queryExecutionId, error.getMessage());
+                }
+            });
+    }
+    
+    private String hold(String queryExecutionId) {
+        AtomicInteger holders = executionHolders.computeIfAbsent(queryExecutionId, id -> new AtomicInteger());
+        holders.incrementAndGet();
+        completionPoller.awaitCompletion(queryExecutionId)
+            .whenComplete((execution, error) -> executionHolders.remove(queryExecutionId, holders));
+        return queryExecutionId;
+    }
+    
+    private StartQueryExecutionRequest startRequest(String query) {
+        StartQueryExecutionRequest.Builder request = StartQueryExecutionRequest.builder()
+                .queryString(query)
+                .queryExecutionContext(QueryExecutionContext.builder()
+                        .database(config.getDatabaseName())
+                        .build())
+                .workGroup(config.getAthenaWorkGroup().isEmpty() ? null : config.getAthenaWorkGroup())
+                .resultConfiguration(ResultConfiguration.builder()
+                        .outputLocation(config.getS3OutputLocation())
+                        .build());
         
-        GetQueryResultsResponse resultResponse = athenaClient.getQueryResults(resultRequest);
+        // Lets Athena serve results from another instance's or a restarted process's recent run
+        if (config.getResultCacheTtlMinutes() > 0) {
+            request.resultReuseConfiguration(ResultReuseConfiguration.builder()
+                    .resultReuseByAgeConfiguration(ResultReuseByAgeConfiguration.builder()
+                            .enabled(true)
+                            .maxAgeInMinutes((int) config.getResultCacheTtlMinutes())
+                            .build())
+                    .build());
+        }
         
-        return convertResultsToMap(resultResponse);
+        return request.build();
     }
     
-    private void waitForQueryToComplete(String queryExecutionId) throws InterruptedException {
-        GetQueryExecutionRequest request = GetQueryExecutionRequest.builder()
+    public CompletableFuture<QueryExecution> awaitExecutionAsync(String queryExecutionId) {
+        return completionPoller.awaitCompletion(queryExecutionId);
+    }
+    
+    // Reports the latest status about once a second until the query finishes
+    public CompletableFuture<QueryExecution> awaitExecutionAsync(String queryExecutionId,
+                                                                 Consumer<QueryExecution> progressListener) {
+        CompletableFuture<QueryExecution> completion = completionPoller.awaitCompletion(queryExecutionId);
+        reportProgress(queryExecutionId, completion, progressListener);
+        return completion;
+    }
+    
+    // Listeners run on the prefetch pool so a slow one never stalls the shared poller
+    private void reportProgress(String queryExecutionId,
+                                CompletableFuture<QueryExecution> completion,
+                                Consumer<QueryExecution> progressListener) {
+        CompletableFuture.delayedExecutor(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, prefetchExecutor).execute(() -> {
+            if (completion.isDone()) {
+                return;
+            }
+            try {
+                QueryExecution latest = completionPoller.getLatestStatus(queryExecutionId);
+                if (latest != null) {
+                    progressListener.accept(latest);
+                }
+            } finally {
+                reportProgress(queryExecutionId, completion, progressListener);
+            }
+        });
+    }
+    
+    // Stops paging once maxRows rows are buffered; nothing blocks while the query runs or pages load
+    public CompletableFuture<QueryResultSet> fetchQueryResultsAsync(String queryExecutionId, int maxRows) {
+        Optional<QueryResultSet> cached = resultCache.getResults(queryExecutionId);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get().head(maxRows));
+        }
+        
+        return completionPoller.awaitCompletion(queryExecutionId)
+                .whenComplete((execution, error) -> {
+                    if (error != null) {
+                        resultCache.invalidateExecution(queryExecutionId);
+                    }
+                })
+                .thenCompose(execution -> fetchPageAsync(queryExecutionId, null, null, maxRows));
+    }
+    
+    private CompletableFuture<QueryResultSet> fetchPageAsync(String queryExecutionId,
+                                                             String nextToken,
+                                                             QueryResultSet.Builder results,
+                                                             int maxRows) {
+        int remaining = maxRows - (results == null ? 0 : results.size());
+        GetQueryResultsRequest request = GetQueryResultsRequest.builder()
                 .queryExecutionId(queryExecutionId)
+                .nextToken(nextToken)
+                // One extra row on the first page for the repeated header
+                .maxResults((int) Math.min(config.getResultPageSize(), remaining + 1L))
                 .build();
         
-        while (true) {
-            GetQueryExecutionResponse response = athenaClient.getQueryExecution(request);
-            QueryExecutionState state = response.queryExecution().status().state();
+        return athenaAsyncClient.getQueryResults(request).thenCompose(page -> {
+            List<Row> rows = page.resultSet().rows();
+            metrics.recordResultPage(rows.size());
+            List<ColumnInfo> columns = page.resultSet().resultSetMetadata().columnInfo();
+            QueryResultSet.Builder builder = results;
+            int start = 0;
             
-            if (state == QueryExecutionState.SUCCEEDED) {
-                break;
-            } else if (state == QueryExecutionState.FAILED || state == QueryExecutionState.CANCELLED) {
-                throw new RuntimeException("Query failed: " + 
-                    response.queryExecution().status().stateChangeReason());
+            if (builder == null) {
+                builder = QueryResultSet.builder(columns.stream()
+                        .map(ColumnInfo::name)
+                        .collect(Collectors.toList()));
+                start = 1;
             }
             
-            Thread.sleep(config.getWaitTimeSeconds() * 1000L);
-        }
+            int columnCount = columns.size();
+            int next = Math.min(start, rows.size());
+            while (next < rows.size() && builder.size() < maxRows) {
+                builder.addRow(AthenaResultStream.toValues(rows.get(next++), columnCount));
+            }
+            
+            if (page.nextToken() == null && next == rows.size()) {
+                QueryResultSet resultSet = builder.build();
+                resultCache.putResults(queryExecutionId, resultSet);
+                return CompletableFuture.completedFuture(resultSet);
+            }
+            if (builder.size() >= maxRows) {
+                return CompletableFuture.completedFuture(builder.build());
+            }
+            return fetchPageAsync(queryExecutionId, page.nextToken(), builder, maxRows);
+        });
     }
     
-    private List<Map<String, String>> convertResultsToMap(GetQueryResultsResponse response) {
-        List<Row> rows = response.resultSet().rows();
-        if (rows.isEmpty()) {
-            return Collections.emptyList();
-        }
+    public AthenaResultStream streamQueryResults(String queryExecutionId) throws InterruptedException {
+        QueryExecution execution = waitForQueryToComplete(queryExecutionId);
         
-        List<String> columns = rows.get(0).data().stream()
-                .map(Datum::varCharValue)
-                .collect(Collectors.toList());
+        GetQueryResultsRequest resultRequest = GetQueryResultsRequest.builder()
+                .queryExecutionId(queryExecutionId)
+                .maxResults(config.getResultPageSize())
+                .build();
         
-        List<Map<String, String>> results = new ArrayList<>();
-        for (int i = 1; i < rows.size(); i++) {
-            Map<String, String> row = new LinkedHashMap<>();
-            List<Datum> data = rows.get(i).data();
-            
-            for (int j = 0; j < columns.size(); j++) {
-                String value = j < data.size() ? data.get(j).varCharValue() : "";
-                row.put(columns.get(j), value);
+        Iterator<GetQueryResultsResponse> pages = athenaClient.getQueryResultsPaginator(resultRequest).stream()
+                .peek(page -> metrics.recordResultPage(page.resultSet().rows().size()))
+                .iterator();
+        
+        return new AthenaResultStream(execution, pages, prefetchExecutor);
+    }
+    
+    // One raw Athena page; the first page (null token) starts with the header row
+    public GetQueryResultsResponse fetchResultPage(String queryExecutionId,
+                                                   String pageToken,
+                                                   int maxResults) throws InterruptedException {
+        waitForQueryToComplete(queryExecutionId);
+        
+        GetQueryResultsResponse page = athenaClient.getQueryResults(GetQueryResultsRequest.builder()
+                .queryExecutionId(queryExecutionId)
+                .nextToken(pageToken)
+                .maxResults(maxResults)
+                .build());
+        metrics.recordResultPage(page.resultSet().rows().size());
+        return page;
+    }
+    
+    public List<TableColumn> fetchResultColumns(String queryExecutionId) throws InterruptedException {
+        waitForQueryToComplete(queryExecutionId);
+        
+        GetQueryResultsRequest resultRequest = GetQueryResultsRequest.builder()
+                .queryExecutionId(queryExecutionId)
+                .maxResults(1)
+                .build();
+        
+        return athenaClient.getQueryResults(resultRequest).resultSet().resultSetMetadata().columnInfo().stream()
+                .map(column -> new TableColumn(column.name(), column.type()))
+                .collect(Collectors.toList());
+    }
+    
+    private QueryExecution waitForQueryToComplete(String queryExecutionId) throws InterruptedException {
+        try {
+            return completionPoller.awaitCompletion(queryExecutionId).get();
+        } catch (ExecutionException e) {
+            resultCache.invalidateExecution(queryExecutionId);
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
-            results.add(row);
+            throw new RuntimeException("Query failed", e.getCause());
         }
-        
-        return results;
     }
 }
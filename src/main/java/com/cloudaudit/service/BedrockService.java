@@ -1,65 +1,180 @@
 package com.cloudaudit.service;
 
 import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.StreamedCompletion;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamResponseHandler;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
 public class BedrockService {
     
-    private final BedrockRuntimeClient bedrockClient;
+    private final BedrockRuntimeAsyncClient bedrockAsyncClient;
     private final CloudAuditConfig config;
     private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+    private final SingleFlight<String, String> invocations;
+    private final SingleFlight<String, String> truncatedInvocations;
     
-    public BedrockService(BedrockRuntimeClient bedrockClient, 
+    public BedrockService(BedrockRuntimeAsyncClient bedrockAsyncClient,
                          CloudAuditConfig config,
-                         ObjectMapper objectMapper) {
-        this.bedrockClient = bedrockClient;
+                         ObjectMapper objectMapper,
+                         PipelineMetrics metrics) {
+        this.bedrockAsyncClient = bedrockAsyncClient;
         this.config = config;
         this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.invocations = new SingleFlight<>("bedrock.invoke", metrics);
+        this.truncatedInvocations = new SingleFlight<>("bedrock.complete", metrics);
     }
     
-    @Retryable(
-        retryFor = {Exception.class},
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 2000, multiplier = 2)
-    )
-    public String invokeClaude(String prompt) {
+    // Identical prompts in flight at the same time share one model invocation
+    public CompletableFuture<String> invokeClaudeAsync(String prompt) {
+        return invocations.executeAsync(prompt, () -> {
+            CompletableFuture<String> call = AsyncRetry.withRetry(
+                () -> {
+                    CompletableFuture<InvokeModelResponse> response = bedrockAsyncClient.invokeModel(buildRequest(prompt));
+                    return AsyncRetry.linkCancellation(response.thenApply(this::parseCompletion), response);
+                },
+                BedrockService::isRetryable,
+                3, 2000, 2,
+                () -> metrics.recordRetries("bedrock.invoke", 1));
+            return AsyncRetry.linkCancellation(call.exceptionally(error -> {
+                log.error("Error invoking Bedrock model", error);
+                throw new RuntimeException("Failed to invoke LLM", error);
+            }), call);
+        });
+    }
+    
+    // Streamed completions are not retried or coalesced: chunks already delivered cannot be taken back
+    public CompletableFuture<String> streamClaude(String prompt, Consumer<String> onChunk) {
+        CompletableFuture<StreamedCompletion> completion = streamCompletion(prompt, onChunk, text -> false);
+        return AsyncRetry.linkCancellation(completion.thenApply(StreamedCompletion::getText), completion);
+    }
+    
+    // Only the final text is exposed, so nothing has been delivered yet and a failed stream can be retried
+    public CompletableFuture<String> completeUntil(String prompt, Predicate<CharSequence> stopWhen) {
+        return truncatedInvocations.executeAsync(prompt, () -> {
+            CompletableFuture<StreamedCompletion> completion = AsyncRetry.withRetry(
+                () -> streamCompletion(prompt, chunk -> { }, stopWhen),
+                BedrockService::isRetryable,
+                3, 2000, 2,
+                () -> metrics.recordRetries("bedrock.complete", 1));
+            return AsyncRetry.linkCancellation(completion.thenApply(StreamedCompletion::getText), completion);
+        });
+    }
+    
+    public CompletableFuture<StreamedCompletion> streamCompletion(String prompt,
+                                                                 Consumer<String> onChunk,
+                                                                 Predicate<CharSequence> stopWhen) {
+        InvokeModelWithResponseStreamRequest request = InvokeModelWithResponseStreamRequest.builder()
+                .modelId(config.getBedrockModelId())
+                .body(buildRequest(prompt).body())
+                .build();
+        
+        BedrockStreamSubscriber subscriber = new BedrockStreamSubscriber(objectMapper, onChunk, stopWhen);
+        InvokeModelWithResponseStreamResponseHandler handler = InvokeModelWithResponseStreamResponseHandler.builder()
+                .subscriber(() -> subscriber)
+                .build();
+        
+        CompletableFuture<Void> call = bedrockAsyncClient.invokeModelWithResponseStream(request, handler);
+        call.whenComplete((done, error) -> {
+            if (error != null) {
+                subscriber.fail(error);
+            }
+        });
+        
+        // Cancelling the returned future aborts the stream, so abandoned requests stop generating tokens
+        return AsyncRetry.linkCancellation(subscriber.getResult().whenComplete((completion, error) -> {
+            if (error != null) {
+                // Abandoned requests cancel their stream; that is routine, not a failure
+                if (AsyncRetry.unwrap(error) instanceof CancellationException) {
+                    log.debug("Bedrock stream cancelled");
+                } else {
+                    log.error("Error streaming Bedrock model response", error);
+                }
+                return;
+            }
+            if (completion.isStoppedEarly()) {
+                // Nothing left to read; release the connection instead of draining the generation
+                call.cancel(true);
+            }
+            metrics.recordStreamedCompletion(completion);
+            log.info("Bedrock stream: first token {} ms, {} tokens in {} ms ({} tokens/s){}",
+                completion.getTimeToFirstTokenMillis(),
+                completion.getOutputTokens(),
+                completion.getDurationMillis(),
+                String.format("%.1f", completion.getTokensPerSecond()),
+                completion.isStoppedEarly() ? ", stopped early" : "");
+        }).exceptionally(error -> {
+            Throwable cause = AsyncRetry.unwrap(error);
+            if (cause instanceof CancellationException) {
+                throw (CancellationException) cause;
+            }
+            throw new RuntimeException("Failed to invoke LLM", cause);
+        }), call);
+    }
+    
+    // Throttling, timeouts and server errors are worth another attempt; a cancelled call or a
+    // rejected request (validation, access, unknown model) fails the same way every time
+    static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException) {
+                return false;
+            }
+            if (cause instanceof SdkServiceException) {
+                SdkServiceException serviceError = (SdkServiceException) cause;
+                int status = serviceError.statusCode();
+                return serviceError.isThrottlingException() || status == 408 || status < 400 || status >= 500;
+            }
+        }
+        return true;
+    }
+    
+    private InvokeModelRequest buildRequest(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("prompt", "\n\nHuman: " + prompt + "\n\nAssistant:");
+        requestBody.put("temperature", config.getTemperature());
+        requestBody.put("top_p", 0.7);
+        requestBody.put("top_k", 40);
+        requestBody.put("max_tokens_to_sample", config.getMaxTokens());
+        
+        String jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsString(requestBody);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize LLM request", e);
+        }
+        
+        return InvokeModelRequest.builder()
+                .modelId(config.getBedrockModelId())
+                .body(SdkBytes.fromUtf8String(jsonBody))
+                .build();
+    }
+    
+    private String parseCompletion(InvokeModelResponse response) {
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("prompt", "\n\nHuman: " + prompt + "\n\nAssistant:");
-            requestBody.put("temperature", config.getTemperature());
-            requestBody.put("top_p", 0.7);
-            requestBody.put("top_k", 40);
-            requestBody.put("max_tokens_to_sample", config.getMaxTokens());
-            
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
-            
-            InvokeModelRequest request = InvokeModelRequest.builder()
-                    .modelId(config.getBedrockModelId())
-                    .body(SdkBytes.fromUtf8String(jsonBody))
-                    .build();
-            
-            InvokeModelResponse response = bedrockClient.invokeModel(request);
-            String responseBody = response.body().asUtf8String();
-            
-            JsonNode jsonNode = objectMapper.readTree(responseBody);
+            JsonNode jsonNode = objectMapper.readTree(response.body().asUtf8String());
             return jsonNode.get("completion").asText().trim();
         } catch (Exception e) {
-            log.error("Error invoking Bedrock model", e);
-            throw new RuntimeException("Failed to invoke LLM", e);
+            throw new RuntimeException("Failed to parse LLM response", e);
         }
     }
 }
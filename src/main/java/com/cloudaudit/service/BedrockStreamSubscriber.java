@@ -0,0 +1,121 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.model.StreamedCompletion;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.services.bedrockruntime.model.PayloadPart;
+import software.amazon.awssdk.services.bedrockruntime.model.ResponseStream;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Collects Claude text-completion chunks, timing the first token and cancelling the
+// stream as soon as the caller has what it needs
+class BedrockStreamSubscriber implements Subscriber<ResponseStream> {
+    
+    // Rough characters-per-token ratio for English text and SQL
+    private static final int CHARS_PER_TOKEN = 4;
+    
+    private final ObjectMapper objectMapper;
+    private final Consumer<String> onChunk;
+    private final Predicate<CharSequence> stopWhen;
+    private final CompletableFuture<StreamedCompletion> result = new CompletableFuture<>();
+    private final StringBuilder text = new StringBuilder();
+    private final long startNanos = System.nanoTime();
+    
+    private Subscription subscription;
+    private long firstTokenNanos;
+    private int reportedOutputTokens = -1;
+    
+    BedrockStreamSubscriber(ObjectMapper objectMapper, Consumer<String> onChunk, Predicate<CharSequence> stopWhen) {
+        this.objectMapper = objectMapper;
+        this.onChunk = onChunk;
+        this.stopWhen = stopWhen;
+    }
+    
+    CompletableFuture<StreamedCompletion> getResult() {
+        return result;
+    }
+    
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+    
+    @Override
+    public void onNext(ResponseStream event) {
+        if (result.isDone()) {
+            return;
+        }
+        
+        try {
+            if (event instanceof PayloadPart) {
+                accept(objectMapper.readTree(((PayloadPart) event).bytes().asUtf8String()));
+            }
+        } catch (Exception e) {
+            subscription.cancel();
+            fail(e);
+            return;
+        }
+        
+        if (stopWhen.test(text)) {
+            subscription.cancel();
+            finish(true);
+        } else {
+            subscription.request(1);
+        }
+    }
+    
+    @Override
+    public void onError(Throwable error) {
+        fail(error);
+    }
+    
+    @Override
+    public void onComplete() {
+        finish(false);
+    }
+    
+    void fail(Throwable error) {
+        result.completeExceptionally(error);
+    }
+    
+    private void accept(JsonNode chunk) {
+        String completion = chunk.path("completion").asText("");
+        if (!completion.isEmpty()) {
+            if (firstTokenNanos == 0) {
+                firstTokenNanos = System.nanoTime();
+            }
+            text.append(completion);
+            onChunk.accept(completion);
+        }
+        
+        JsonNode metrics = chunk.path("amazon-bedrock-invocationMetrics");
+        if (metrics.has("outputTokenCount")) {
+            reportedOutputTokens = metrics.get("outputTokenCount").asInt();
+        }
+    }
+    
+    private void finish(boolean stoppedEarly) {
+        long now = System.nanoTime();
+        Long timeToFirstToken = firstTokenNanos == 0
+            ? null
+            : TimeUnit.NANOSECONDS.toMillis(firstTokenNanos - startNanos);
+        int outputTokens = reportedOutputTokens >= 0
+            ? reportedOutputTokens
+            : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        
+        result.complete(new StreamedCompletion(
+            text.toString().trim(),
+            timeToFirstToken,
+            TimeUnit.NANOSECONDS.toMillis(now - startNanos),
+            outputTokens,
+            stoppedEarly
+        ));
+    }
+}
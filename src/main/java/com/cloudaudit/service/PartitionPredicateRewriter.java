@@ -0,0 +1,441 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.SqlRewrite;
+import com.cloudaudit.model.TableSchema;
+import com.cloudaudit.model.TableSchema.TableColumn;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Adds partition predicates implied by eventtime and awsregion filters, plus a default LIMIT, to
+// generated SQL. Only single-table SELECTs are rewritten, and only predicates that are top-level
+// conjuncts of the WHERE clause are used, so the rewritten query always returns the same rows.
+@Slf4j
+@Component
+public class PartitionPredicateRewriter {
+    
+    private static final String TIME_COLUMN = "eventtime";
+    private static final String REGION_COLUMN = "awsregion";
+    // Ranges longer than this restrict the year only, keeping the predicate short
+    private static final int MAX_ENUMERATED_MONTHS = 24;
+    private static final Pattern INTEGER_TYPE = Pattern.compile("tinyint|smallint|int|integer|bigint", Pattern.CASE_INSENSITIVE);
+    
+    private static final Pattern CLAUSE = Pattern.compile(
+        "\\b(WHERE|GROUP\\s+BY|HAVING|ORDER\\s+BY|LIMIT|OFFSET|FETCH|WINDOW)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FROM = Pattern.compile("\\bFROM\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPOUND = Pattern.compile(
+        "^\\s*WITH\\b|\\b(UNION|INTERSECT|EXCEPT)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LIMIT = Pattern.compile("\\b(LIMIT|FETCH)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern OR = Pattern.compile("\\bOR\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AND_OR_BETWEEN = Pattern.compile("\\b(AND|BETWEEN)\\b", Pattern.CASE_INSENSITIVE);
+    
+    // eventtime, optionally qualified, quoted, cast or wrapped in a parsing function
+    private static final String TIME_EXPR = "(?:"
+        + "(?:\\w+\\.)?\"?" + TIME_COLUMN + "\"?"
+        + "|\\w+\\(\\s*(?:\\w+\\.)?\"?" + TIME_COLUMN + "\"?\\s*(?:,\\s*'[^']*'\\s*)?\\)"
+        + "|CAST\\(\\s*(?:\\w+\\.)?\"?" + TIME_COLUMN + "\"?\\s+AS\\s+\\w+(?:\\(\\d+\\))?\\s*\\))";
+    private static final String NOW = "(?:current_timestamp|current_date|localtimestamp|now\\(\\s*\\))";
+    private static final String TIME_VALUE = "(?:"
+        + "(?:TIMESTAMP|DATE)?\\s*'[^']+'"
+        + "|\\w+\\(\\s*'[^']+'\\s*(?:,\\s*'[^']*'\\s*)?\\)"
+        + "|" + NOW + "(?:\\s*-\\s*INTERVAL\\s*'\\d+'\\s*\\w+)?"
+        + "|date_add\\(\\s*'\\w+'\\s*,\\s*-\\s*\\d+\\s*,\\s*" + NOW + "\\s*\\))";
+    
+    private static final Pattern COMPARISON = Pattern.compile(
+        "^\\s*" + TIME_EXPR + "\\s*(>=|>|<=|<|=)\\s*(" + TIME_VALUE + ")\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BETWEEN = Pattern.compile(
+        "^\\s*" + TIME_EXPR + "\\s+BETWEEN\\s+(" + TIME_VALUE + ")\\s+AND\\s+(" + TIME_VALUE + ")\\s*$",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern DATE_LITERAL = Pattern.compile("'(\\d{4}-\\d{2}-\\d{2})[^']*'");
+    private static final Pattern INTERVAL = Pattern.compile(
+        NOW + "\\s*-\\s*INTERVAL\\s*'(\\d+)'\\s*(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DATE_ADD = Pattern.compile(
+        "date_add\\(\\s*'(\\w+)'\\s*,\\s*-\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern BARE_NOW = Pattern.compile("^\\s*" + NOW + "\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern REGION = Pattern.compile(
+        "^\\s*(?:\\w+\\.)?\"?" + REGION_COLUMN + "\"?\\s*(?:=\\s*('[\\w-]+')|IN\\s*\\(\\s*('[\\w-]+'(?:\\s*,\\s*'[\\w-]+')*)\\s*\\))\\s*$",
+        Pattern.CASE_INSENSITIVE);
+    
+    private final CloudAuditConfig config;
+    // Bytes scanned by the latest query without any partition filter, i.e. the whole table
+    private final AtomicLong fullScanBytes = new AtomicLong(-1);
+    private final PipelineMetrics metrics;
+    
+    public PartitionPredicateRewriter(CloudAuditConfig config, PipelineMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+    }
+    
+    public SqlRewrite rewrite(String sql, TableSchema schema) {
+        return rewrite(sql, schema, Instant.now());
+    }
+    
+    SqlRewrite rewrite(String sql, TableSchema schema, Instant now) {
+        String body = sql.trim();
+        if (body.endsWith(";")) {
+            body = body.substring(0, body.length() - 1).trim();
+        }
+        
+        String topLevel = topLevel(body);
+        if (COMPOUND.matcher(topLevel).find()) {
+            return new SqlRewrite(sql, null, false, false);
+        }
+        
+        Matcher from = FROM.matcher(topLevel);
+        int fromEnd = from.find() ? from.end() : -1;
+        Matcher clause = CLAUSE.matcher(topLevel);
+        int fromClauseEnd = fromEnd >= 0 && clause.find(fromEnd) ? clause.start() : body.length();
+        
+        int whereStart = -1;
+        int whereEnd = -1;
+        if (fromEnd >= 0 && fromClauseEnd < body.length() && clause.group(1).equalsIgnoreCase("WHERE")) {
+            whereStart = clause.end();
+            whereEnd = clause.find() ? clause.start() : body.length();
+        }
+        
+        List<String> partitionKeys = schema.getPartitionKeys().stream()
+                .map(column -> column.getName().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+        String where = whereStart < 0 ? "" : body.substring(whereStart, whereEnd);
+        boolean partitionFiltered = partitionKeys.stream()
+                .anyMatch(key -> Pattern.compile("\\b\"?" + Pattern.quote(key) + "\"?\\s*(=|<|>|!=|IN\\b|BETWEEN\\b)",
+                        Pattern.CASE_INSENSITIVE)
+                    .matcher(topLevel(where)).find());
+        
+        List<String> predicates = new ArrayList<>();
+        Integer partitionDays = null;
+        boolean singleTable = fromEnd >= 0 && isConfiguredTable(body.substring(fromEnd, fromClauseEnd));
+        
+        if (config.isPartitionPruningEnabled() && singleTable && !partitionKeys.isEmpty()) {
+            List<String> conjuncts = conjuncts(where);
+            
+            Optional<LocalDate[]> range = timeRange(conjuncts, now);
+            if (range.isPresent()) {
+                LocalDate first = range.get()[0];
+                // CloudTrail files land in the partition of their delivery time, which can trail the
+                // event by several minutes, so events near midnight sit in the next day's partition
+                LocalDate last = range.get()[1].plusDays(1);
+                Optional<String> datePredicate = datePredicate(schema.getPartitionKeys(), first, last);
+                if (datePredicate.isPresent()) {
+                    predicates.add(datePredicate.get());
+                    partitionDays = (int) ChronoUnit.DAYS.between(first, last) + 1;
+                }
+            }
+            
+            if (partitionKeys.contains("region")) {
+                regionValues(conjuncts).ifPresent(regions -> predicates.add(regions.contains(",")
+                    ? "region IN (" + regions + ")"
+                    : "region = " + regions));
+            }
+        }
+        
+        // Predicates only come from WHERE conjuncts, so there is always a WHERE clause to extend
+        StringBuilder rewritten = new StringBuilder();
+        if (predicates.isEmpty()) {
+            rewritten.append(body);
+        } else {
+            rewritten.append(body, 0, whereStart)
+                     .append(" (").append(where.trim()).append(") AND ").append(String.join(" AND ", predicates))
+                     .append(' ').append(body.substring(whereEnd).trim());
+        }
+        
+        boolean limitAdded = config.getSqlDefaultLimit() > 0 && !LIMIT.matcher(topLevel).find();
+        if (limitAdded) {
+            rewritten.append(rewritten.toString().endsWith(" ") ? "" : " ")
+                     .append("LIMIT ").append(config.getSqlDefaultLimit());
+        }
+        
+        String result = rewritten.toString().trim() + ";";
+        if (partitionDays != null || limitAdded) {
+            log.info("Rewrote generated SQL: {}{}",
+                partitionDays == null ? "no partition predicate" : "partition scan limited to " + partitionDays + " day(s)",
+                limitAdded ? ", default LIMIT " + config.getSqlDefaultLimit() + " added" : "");
+        }
+        return new SqlRewrite(result, partitionDays, partitionFiltered || !predicates.isEmpty(), limitAdded);
+    }
+    
+    // Compares the scan of a pruned query with the latest full-table scan to estimate the bytes saved
+    public void recordScan(SqlRewrite rewrite, Long bytesScanned) {
+        if (bytesScanned == null) {
+            return;
+        }
+        
+        if (!rewrite.isPartitionFiltered()) {
+            fullScanBytes.set(bytesScanned);
+            return;
+        }
+        if (!rewrite.isPartitionPruned()) {
+            return;
+        }
+        
+        long fullScan = fullScanBytes.get();
+        if (fullScan < 0) {
+            log.info("Partition-pruned query over {} day(s) scanned {} bytes; no full scan observed yet to compare",
+                rewrite.getPartitionDays(), bytesScanned);
+        } else if (fullScan > bytesScanned) {
+            long saved = fullScan - bytesScanned;
+            metrics.recordBytesSaved(saved);
+            log.info("Partition-pruned query over {} day(s) scanned {} bytes, about {} bytes less than a full scan",
+                rewrite.getPartitionDays(), bytesScanned, saved);
+        }
+    }
+    
+    private boolean isConfiguredTable(String fromClause) {
+        if (config.getTableName() == null) {
+            return false;
+        }
+        String table = Pattern.quote(config.getTableName());
+        return Pattern.compile("^\\s*(?:\"?\\w+\"?\\.)?\"?" + table + "\"?(?:\\s+(?:AS\\s+)?\\w+)?\\s*$",
+                Pattern.CASE_INSENSITIVE)
+            .matcher(fromClause)
+            .matches();
+    }
+    
+    // Splits on top-level AND; any top-level OR makes no single conjunct binding, so none are returned
+    private List<String> conjuncts(String where) {
+        List<String> conjuncts = new ArrayList<>();
+        String topLevel = topLevel(where);
+        if (where.isBlank() || OR.matcher(topLevel).find()) {
+            return conjuncts;
+        }
+        
+        Matcher keyword = AND_OR_BETWEEN.matcher(topLevel);
+        int start = 0;
+        boolean inBetween = false;
+        while (keyword.find()) {
+            if (keyword.group(1).equalsIgnoreCase("BETWEEN")) {
+                inBetween = true;
+            } else if (inBetween) {
+                inBetween = false;
+            } else {
+                conjuncts.add(where.substring(start, keyword.start()));
+                start = keyword.end();
+            }
+        }
+        conjuncts.add(where.substring(start));
+        
+        // A parenthesised conjunct without OR inside is itself a list of conjuncts
+        List<String> flattened = new ArrayList<>();
+        for (String conjunct : conjuncts) {
+            String trimmed = conjunct.trim();
+            if (trimmed.startsWith("(") && trimmed.endsWith(")") && topLevel(trimmed).trim().isEmpty()) {
+                flattened.addAll(conjuncts(trimmed.substring(1, trimmed.length() - 1)));
+            } else {
+                flattened.add(trimmed);
+            }
+        }
+        return flattened;
+    }
+    
+    private Optional<LocalDate[]> timeRange(List<String> conjuncts, Instant now) {
+        LocalDate today = now.atZone(ZoneOffset.UTC).toLocalDate();
+        LocalDate lower = null;
+        LocalDate upper = null;
+        
+        for (String conjunct : conjuncts) {
+            Matcher between = BETWEEN.matcher(conjunct);
+            Matcher comparison = COMPARISON.matcher(conjunct);
+            LocalDate low = null;
+            LocalDate high = null;
+            
+            if (between.matches()) {
+                low = toDate(between.group(1), now);
+                high = toDate(between.group(2), now);
+            } else if (comparison.matches()) {
+                LocalDate value = toDate(comparison.group(2), now);
+                String operator = comparison.group(1);
+                if (operator.startsWith(">") || operator.equals("=")) {
+                    low = value;
+                }
+                if (operator.startsWith("<") || operator.equals("=")) {
+                    high = value;
+                }
+            }
+            
+            if (low != null && (lower == null || low.isAfter(lower))) {
+                lower = low;
+            }
+            if (high != null && (upper == null || high.isBefore(upper))) {
+                upper = high;
+            }
+        }
+        
+        if (lower == null) {
+            return Optional.empty();
+        }
+        LocalDate end = upper == null || upper.isAfter(today) ? today : upper;
+        return Optional.of(new LocalDate[] {lower, end.isBefore(lower) ? lower : end});
+    }
+    
+    private LocalDate toDate(String value, Instant now) {
+        Matcher literal = DATE_LITERAL.matcher(value);
+        if (literal.find()) {
+            try {
+                return LocalDate.parse(literal.group(1));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        
+        Matcher interval = INTERVAL.matcher(value);
+        if (interval.find()) {
+            return minus(now, Long.parseLong(interval.group(1)), interval.group(2));
+        }
+        Matcher dateAdd = DATE_ADD.matcher(value);
+        if (dateAdd.find()) {
+            return minus(now, Long.parseLong(dateAdd.group(2)), dateAdd.group(1));
+        }
+        if (BARE_NOW.matcher(value).matches()) {
+            return now.atZone(ZoneOffset.UTC).toLocalDate();
+        }
+        return null;
+    }
+    
+    private LocalDate minus(Instant now, long amount, String unit) {
+        String normalized = unit.toLowerCase(Locale.ROOT).replaceAll("s$", "");
+        Map<String, ChronoUnit> units = Map.of(
+            "second", ChronoUnit.SECONDS, "minute", ChronoUnit.MINUTES, "hour", ChronoUnit.HOURS,
+            "day", ChronoUnit.DAYS, "week", ChronoUnit.WEEKS, "month", ChronoUnit.MONTHS, "year", ChronoUnit.YEARS);
+        ChronoUnit chronoUnit = units.get(normalized);
+        if (chronoUnit == null) {
+            return null;
+        }
+        return now.atZone(ZoneOffset.UTC).minus(amount, chronoUnit).toLocalDate();
+    }
+    
+    private Optional<String> regionValues(List<String> conjuncts) {
+        for (String conjunct : conjuncts) {
+            Matcher region = REGION.matcher(conjunct);
+            if (region.matches()) {
+                return Optional.of(region.group(1) != null ? region.group(1) : region.group(2));
+            }
+        }
+        return Optional.empty();
+    }
+    
+    // Supports the usual CloudTrail layouts: year/month/day string or integer keys, or a single date key
+    // ("timestamp" as written by partition projection, or dt/date)
+    private Optional<String> datePredicate(List<TableColumn> partitionKeys, LocalDate first, LocalDate last) {
+        Map<String, TableColumn> keys = partitionKeys.stream()
+                .collect(Collectors.toMap(key -> key.getName().toLowerCase(Locale.ROOT), Function.identity(), (a, b) -> a));
+        
+        if (keys.containsKey("year") && keys.containsKey("month") && keys.containsKey("day")) {
+            return Optional.of(yearMonthDayPredicate(keys.get("year"), keys.get("month"), keys.get("day"), first, last));
+        }
+        
+        for (String name : List.of("timestamp", "dt", "date")) {
+            TableColumn key = keys.get(name);
+            if (key == null) {
+                continue;
+            }
+            if (key.getType().equalsIgnoreCase("date")) {
+                return Optional.of(String.format("\"%s\" BETWEEN DATE '%s' AND DATE '%s'", key.getName(), first, last));
+            }
+            DateTimeFormatter format = DateTimeFormatter.ofPattern(name.equals("timestamp") ? "yyyy/MM/dd" : "yyyy-MM-dd");
+            return Optional.of(String.format("\"%s\" BETWEEN '%s' AND '%s'",
+                key.getName(), first.format(format), last.format(format)));
+        }
+        return Optional.empty();
+    }
+    
+    private String yearMonthDayPredicate(TableColumn yearKey, TableColumn monthKey, TableColumn dayKey,
+                                         LocalDate first, LocalDate last) {
+        YearMonth firstMonth = YearMonth.from(first);
+        YearMonth lastMonth = YearMonth.from(last);
+        
+        if (ChronoUnit.MONTHS.between(firstMonth, lastMonth) >= MAX_ENUMERATED_MONTHS) {
+            return String.format("year BETWEEN %s AND %s",
+                partitionValue(yearKey, first.getYear()), partitionValue(yearKey, last.getYear()));
+        }
+        
+        List<String> months = new ArrayList<>();
+        for (YearMonth month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            String predicate = String.format("year = %s AND month = %s",
+                partitionValue(yearKey, month.getYear()), partitionValue(monthKey, month.getMonthValue()));
+            int fromDay = month.equals(firstMonth) ? first.getDayOfMonth() : 1;
+            int toDay = month.equals(lastMonth) ? last.getDayOfMonth() : month.lengthOfMonth();
+            
+            if (fromDay == toDay) {
+                predicate += String.format(" AND day = %s", partitionValue(dayKey, fromDay));
+            } else if (fromDay > 1 || toDay < month.lengthOfMonth()) {
+                predicate += String.format(" AND day BETWEEN %s AND %s",
+                    partitionValue(dayKey, fromDay), partitionValue(dayKey, toDay));
+            }
+            months.add(months.size() == 0 && month.equals(lastMonth) ? predicate : "(" + predicate + ")");
+        }
+        return months.size() == 1 ? months.get(0) : "(" + String.join(" OR ", months) + ")";
+    }
+    
+    // Comparing an integer key with a string literal fails in Athena, and string keys are zero-padded
+    private String partitionValue(TableColumn key, int value) {
+        if (INTEGER_TYPE.matcher(key.getType()).matches()) {
+            return String.valueOf(value);
+        }
+        return String.format("'%02d'", value);
+    }
+    
+    // The text with string literals, quoted identifiers, comments and anything inside parentheses
+    // blanked out, so keyword searches only see the outermost query level
+    static String topLevel(String sql) {
+        StringBuilder masked = new StringBuilder(sql.length());
+        int depth = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = i + 1;
+                while (end < sql.length()) {
+                    if (sql.charAt(end) == c) {
+                        if (end + 1 < sql.length() && sql.charAt(end + 1) == c) {
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                end = Math.min(end + 1, sql.length());
+                masked.append(" ".repeat(end - i));
+                i = end;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? sql.length() : end;
+                masked.append(" ".repeat(end - i));
+                i = end;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? sql.length() : end + 2;
+                masked.append(" ".repeat(end - i));
+                i = end;
+            } else {
+                if (c == '(') {
+                    depth++;
+                }
+                masked.append(depth > 0 ? ' ' : c);
+                if (c == ')' && depth > 0) {
+                    depth--;
+                }
+                i++;
+            }
+        }
+        return masked.toString();
+    }
+}
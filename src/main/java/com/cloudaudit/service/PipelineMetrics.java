@@ -0,0 +1,182 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.model.StreamedCompletion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+import software.amazon.awssdk.services.athena.model.QueryExecutionStatistics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Stage timings share one timer name tagged by stage, so dashboards can stack them per request
+@Component
+public class PipelineMetrics {
+    
+    public static final String SCHEMA = "schema";
+    public static final String SQL_GENERATION = "sql_generation";
+    public static final String ADMISSION = "admission";
+    public static final String ATHENA_START = "athena_start";
+    public static final String RESULT_FETCH = "result_fetch";
+    public static final String MASKING = "masking";
+    public static final String DESCRIPTION = "description";
+    public static final String CSV_EXPORT = "csv_export";
+    public static final String ROWS_EXPORT = "rows_export";
+    
+    private final MeterRegistry registry;
+    private final Timer athenaQueueTime;
+    private final Timer athenaExecutionTime;
+    private final DistributionSummary athenaBytesScanned;
+    private final DistributionSummary athenaBytesSaved;
+    private final Counter resultPages;
+    private final Counter resultRows;
+    private final Timer bedrockTimeToFirstToken;
+    private final DistributionSummary bedrockOutputTokens;
+    private final DistributionSummary bedrockTokensPerSecond;
+    
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.athenaQueueTime = Timer.builder("cloudaudit.athena.queue.time")
+                .description("Time Athena queries spent queued before execution")
+                .register(registry);
+        this.athenaExecutionTime = Timer.builder("cloudaudit.athena.execution.time")
+                .description("Athena engine execution time")
+                .register(registry);
+        this.athenaBytesScanned = DistributionSummary.builder("cloudaudit.athena.bytes.scanned")
+                .description("Data scanned per Athena query")
+                .baseUnit("bytes")
+                .register(registry);
+        this.athenaBytesSaved = DistributionSummary.builder("cloudaudit.athena.bytes.saved")
+                .description("Estimated scan avoided per query by injected partition predicates")
+                .baseUnit("bytes")
+                .register(registry);
+        this.resultPages = Counter.builder("cloudaudit.athena.result.pages")
+                .description("GetQueryResults pages fetched")
+                .register(registry);
+        this.resultRows = Counter.builder("cloudaudit.athena.result.rows")
+                .description("Rows read from Athena result pages")
+                .register(registry);
+        this.bedrockTimeToFirstToken = Timer.builder("cloudaudit.bedrock.first.token.time")
+                .description("Time until the first streamed Bedrock token")
+                .register(registry);
+        this.bedrockOutputTokens = DistributionSummary.builder("cloudaudit.bedrock.output.tokens")
+                .description("Tokens generated per streamed Bedrock completion")
+                .register(registry);
+        this.bedrockTokensPerSecond = DistributionSummary.builder("cloudaudit.bedrock.tokens.per.second")
+                .description("Generation throughput per streamed Bedrock completion")
+                .baseUnit("tokens/s")
+                .register(registry);
+    }
+    
+    public Timer.Sample startStage() {
+        return Timer.start(registry);
+    }
+    
+    public void stopStage(Timer.Sample sample, String stage) {
+        sample.stop(stageTimer(stage));
+    }
+    
+    public <T> CompletableFuture<T> timeAsync(String stage, Supplier<CompletableFuture<T>> call) {
+        Timer.Sample sample = startStage();
+        return call.get().whenComplete((value, error) -> stopStage(sample, stage));
+    }
+    
+    public void recordAthenaExecution(QueryExecution execution) {
+        QueryExecutionStatistics statistics = execution.statistics();
+        if (statistics == null) {
+            return;
+        }
+        
+        if (statistics.queryQueueTimeInMillis() != null) {
+            athenaQueueTime.record(statistics.queryQueueTimeInMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (statistics.engineExecutionTimeInMillis() != null) {
+            athenaExecutionTime.record(statistics.engineExecutionTimeInMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (statistics.dataScannedInBytes() != null) {
+            athenaBytesScanned.record(statistics.dataScannedInBytes());
+        }
+    }
+    
+    public void recordBytesSaved(long bytes) {
+        athenaBytesSaved.record(bytes);
+    }
+    
+    public void recordCancellation(String reason) {
+        Counter.builder("cloudaudit.athena.cancelled")
+                .description("Athena queries stopped before completion")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+    
+    public void recordResultPage(int rowCount) {
+        resultPages.increment();
+        resultRows.increment(rowCount);
+    }
+    
+    public void recordRetries(String operation, int retries) {
+        if (retries > 0) {
+            Counter.builder("cloudaudit.retries")
+                    .description("Retried AWS calls")
+                    .tag("operation", operation)
+                    .register(registry)
+                    .increment(retries);
+        }
+    }
+    
+    public void recordStreamedCompletion(StreamedCompletion completion) {
+        if (completion.getTimeToFirstTokenMillis() != null) {
+            bedrockTimeToFirstToken.record(completion.getTimeToFirstTokenMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (completion.getOutputTokens() > 0) {
+            bedrockOutputTokens.record(completion.getOutputTokens());
+        }
+        if (completion.getOutputTokens() > 0 && completion.getDurationMillis() > 0) {
+            bedrockTokensPerSecond.record(completion.getTokensPerSecond());
+        }
+    }
+    
+    // Read lazily at scrape time, so the cache keeps its own lock-free counters
+    public void registerSqlCache(SqlQueryCache cache) {
+        registerSqlCacheCounter(cache, "hit", SqlQueryCache::getHitCount);
+        registerSqlCacheCounter(cache, "similar_hit", SqlQueryCache::getSimilarHitCount);
+        registerSqlCacheCounter(cache, "miss", SqlQueryCache::getMissCount);
+    }
+    
+    void registerSingleFlight(String name, SingleFlight<?, ?> flight) {
+        FunctionCounter.builder("cloudaudit.singleflight.executions", flight, SingleFlight::getExecutionCount)
+                .description("Backend calls started by a single-flight group")
+                .tag("flight", name)
+                .register(registry);
+        FunctionCounter.builder("cloudaudit.singleflight.coalesced", flight, SingleFlight::getCoalescedCount)
+                .description("Callers that joined a backend call already in flight")
+                .tag("flight", name)
+                .register(registry);
+        Gauge.builder("cloudaudit.singleflight.in.flight", flight, SingleFlight::getInFlightCount)
+                .description("Distinct backend calls currently in flight")
+                .tag("flight", name)
+                .register(registry);
+    }
+    
+    private void registerSqlCacheCounter(SqlQueryCache cache, String result, ToLongFunction<SqlQueryCache> count) {
+        FunctionCounter.builder("cloudaudit.sql.cache.lookups", cache, value -> count.applyAsLong(value))
+                .description("Generated SQL cache lookups by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+    
+    private Timer stageTimer(String stage) {
+        return Timer.builder("cloudaudit.pipeline.stage")
+                .description("Time spent in each query pipeline stage")
+                .tag("stage", stage)
+                .register(registry);
+    }
+}
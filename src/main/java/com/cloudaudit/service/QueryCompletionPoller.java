@@ -0,0 +1,231 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.athena.model.BatchGetQueryExecutionRequest;
+import software.amazon.awssdk.services.athena.model.BatchGetQueryExecutionResponse;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+import software.amazon.awssdk.services.athena.model.QueryExecutionState;
+import software.amazon.awssdk.services.athena.model.QueryExecutionStatistics;
+import software.amazon.awssdk.services.athena.model.StopQueryExecutionRequest;
+import software.amazon.awssdk.services.athena.model.UnprocessedQueryExecutionId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class QueryCompletionPoller {
+    
+    // BatchGetQueryExecution accepts at most 50 IDs per call
+    private static final int MAX_BATCH_SIZE = 50;
+    
+    private final AthenaClient athenaClient;
+    private final CloudAuditConfig config;
+    private final PipelineMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, PendingQuery> pendingQueries = new ConcurrentHashMap<>();
+    // Result pages, exports and reused executions wait on queries that have already finished;
+    // remembering the outcome for a while answers them without another status round-trip
+    private final Map<String, CompletedQuery> completedQueries = new ConcurrentHashMap<>();
+    
+    public QueryCompletionPoller(AthenaClient athenaClient, CloudAuditConfig config, PipelineMetrics metrics) {
+        this.athenaClient = athenaClient;
+        this.config = config;
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "athena-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        long tick = Math.max(10, config.getPollInitialIntervalMillis());
+        scheduler.scheduleWithFixedDelay(this::poll, tick, tick, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    public CompletableFuture<QueryExecution> awaitCompletion(String queryExecutionId) {
+        CompletedQuery completed = completedQueries.get(queryExecutionId);
+        if (completed != null) {
+            return completed.future;
+        }
+        return pendingQueries.computeIfAbsent(queryExecutionId, PendingQuery::new).future;
+    }
+    
+    public QueryExecution getLatestStatus(String queryExecutionId) {
+        PendingQuery query = pendingQueries.get(queryExecutionId);
+        if (query != null) {
+            return query.latestStatus;
+        }
+        CompletedQuery completed = completedQueries.get(queryExecutionId);
+        return completed == null ? null : completed.latestStatus;
+    }
+    
+    // Fails everyone waiting on the query; the caller is responsible for stopping it in Athena
+    public boolean abandon(String queryExecutionId) {
+        PendingQuery query = pendingQueries.get(queryExecutionId);
+        if (query == null || !query.future.completeExceptionally(new CancellationException("Query was cancelled"))) {
+            return false;
+        }
+        metrics.recordCancellation("abandoned");
+        return true;
+    }
+    
+    public int getInFlightCount() {
+        return pendingQueries.size();
+    }
+    
+    void poll() {
+        try {
+            long now = System.nanoTime();
+            completedQueries.values().removeIf(query -> now >= query.expiresAt);
+            List<String> due = new ArrayList<>();
+            
+            for (PendingQuery query : pendingQueries.values()) {
+                if (now >= query.deadline) {
+                    stop(query, "timeout", new RuntimeException(
+                        "Query timed out after " + config.getQueryTimeoutSeconds() + " seconds"));
+                } else if (now >= query.nextPollAt) {
+                    due.add(query.queryExecutionId);
+                }
+            }
+            
+            for (int i = 0; i < due.size(); i += MAX_BATCH_SIZE) {
+                checkStatus(due.subList(i, Math.min(i + MAX_BATCH_SIZE, due.size())));
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception escape, it would cancel the scheduled task
+            log.warn("Error polling Athena query status: {}", e.getMessage());
+        }
+    }
+    
+    private void checkStatus(List<String> queryExecutionIds) {
+        BatchGetQueryExecutionResponse response;
+        try {
+            response = athenaClient.batchGetQueryExecution(BatchGetQueryExecutionRequest.builder()
+                    .queryExecutionIds(queryExecutionIds)
+                    .build());
+        } catch (RuntimeException e) {
+            log.warn("Batch status check failed for {} queries: {}", queryExecutionIds.size(), e.getMessage());
+            queryExecutionIds.forEach(this::backOff);
+            return;
+        }
+        
+        for (QueryExecution execution : response.queryExecutions()) {
+            PendingQuery query = pendingQueries.get(execution.queryExecutionId());
+            if (query == null) {
+                continue;
+            }
+            
+            query.latestStatus = execution;
+            
+            QueryExecutionState state = execution.status().state();
+            if (state == QueryExecutionState.SUCCEEDED) {
+                metrics.recordAthenaExecution(execution);
+                query.future.complete(execution);
+            } else if (state == QueryExecutionState.FAILED || state == QueryExecutionState.CANCELLED) {
+                query.future.completeExceptionally(new RuntimeException("Query failed: " + 
+                    execution.status().stateChangeReason()));
+            } else if (overScanLimit(execution)) {
+                stop(query, "bytes_limit", new QueryLimitExceededException(
+                    "Query was stopped because it scanned more data than allowed. Try a narrower time range."));
+            } else {
+                backOff(execution.queryExecutionId());
+            }
+        }
+        
+        for (UnprocessedQueryExecutionId unprocessed : response.unprocessedQueryExecutionIds()) {
+            log.debug("Status unavailable for query, retrying: {}", unprocessed.errorMessage());
+            backOff(unprocessed.queryExecutionId());
+        }
+    }
+    
+    // Athena reports data scanned so far while a query runs, so runaway scans are caught before they finish
+    private boolean overScanLimit(QueryExecution execution) {
+        QueryExecutionStatistics statistics = execution.statistics();
+        return config.getAthenaMaxBytesScanned() > 0
+            && statistics != null
+            && statistics.dataScannedInBytes() != null
+            && statistics.dataScannedInBytes() > config.getAthenaMaxBytesScanned();
+    }
+    
+    // Waiters are failed first; the query itself keeps running (and billing) unless Athena is told to stop it
+    private void stop(PendingQuery query, String reason, RuntimeException error) {
+        if (!query.future.completeExceptionally(error)) {
+            return;
+        }
+        
+        log.warn("Stopping Athena query {} ({})", query.queryExecutionId, reason);
+        metrics.recordCancellation(reason);
+        try {
+            athenaClient.stopQueryExecution(StopQueryExecutionRequest.builder()
+                    .queryExecutionId(query.queryExecutionId)
+                    .build());
+        } catch (RuntimeException e) {
+            log.warn("Failed to stop Athena query {}: {}", query.queryExecutionId, e.getMessage());
+        }
+    }
+    
+    private void backOff(String queryExecutionId) {
+        PendingQuery query = pendingQueries.get(queryExecutionId);
+        if (query == null) {
+            return;
+        }
+        
+        query.intervalMillis = Math.min(
+            (long) (query.intervalMillis * config.getPollBackoffMultiplier()),
+            config.getPollMaxIntervalMillis()
+        );
+        query.nextPollAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(query.intervalMillis);
+    }
+    
+    private class PendingQuery {
+        private final String queryExecutionId;
+        private final CompletableFuture<QueryExecution> future = new CompletableFuture<>();
+        private final long deadline;
+        private long intervalMillis;
+        private long nextPollAt;
+        private volatile QueryExecution latestStatus;
+        
+        PendingQuery(String queryExecutionId) {
+            this.queryExecutionId = queryExecutionId;
+            this.intervalMillis = config.getPollInitialIntervalMillis();
+            
+            long now = System.nanoTime();
+            this.nextPollAt = now + TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            this.deadline = now + TimeUnit.SECONDS.toNanos(config.getQueryTimeoutSeconds());
+            
+            // Completed, failed or abandoned queries stop being polled
+            future.whenComplete((execution, error) -> {
+                completedQueries.put(queryExecutionId, new CompletedQuery(future, latestStatus));
+                pendingQueries.remove(queryExecutionId, this);
+            });
+        }
+    }
+    
+    private class CompletedQuery {
+        private final CompletableFuture<QueryExecution> future;
+        private final QueryExecution latestStatus;
+        private final long expiresAt;
+        
+        CompletedQuery(CompletableFuture<QueryExecution> future, QueryExecution latestStatus) {
+            this.future = future;
+            this.latestStatus = latestStatus;
+            this.expiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getPollCompletedRetentionSeconds());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// SECURITY: Result endpoints only serve executions started by this application,
+// never arbitrary execution IDs from the same Athena workgroup
+@Component
+public class QueryExecutionRegistry {
+    
+    private final CloudAuditConfig config;
+    private final Map<String, Instant> executions = new ConcurrentHashMap<>();
+    
+    public QueryExecutionRegistry(CloudAuditConfig config) {
+        this.config = config;
+    }
+    
+    public void register(String queryExecutionId) {
+        evictExpired();
+        executions.put(queryExecutionId, Instant.now());
+    }
+    
+    public boolean isKnown(String queryExecutionId) {
+        Instant registeredAt = executions.get(queryExecutionId);
+        if (registeredAt == null) {
+            return false;
+        }
+        if (isExpired(registeredAt)) {
+            executions.remove(queryExecutionId);
+            return false;
+        }
+        return true;
+    }
+    
+    private void evictExpired() {
+        executions.values().removeIf(this::isExpired);
+    }
+    
+    private boolean isExpired(Instant registeredAt) {
+        return registeredAt.plus(Duration.ofMinutes(config.getResultRetentionMinutes())).isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,125 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.dto.QueryRequest;
+import com.cloudaudit.dto.QueryResponse;
+import com.cloudaudit.model.QueryJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+public class QueryJobService {
+    
+    private final QueryPipelineService pipelineService;
+    private final AsyncTaskExecutor pipelineExecutor;
+    private final CloudAuditConfig config;
+    private final Map<String, QueryJob> jobs = new ConcurrentHashMap<>();
+    // Progress events reach SSE subscribers from here, never from the pipeline thread
+    private final ExecutorService eventExecutor;
+    
+    public QueryJobService(QueryPipelineService pipelineService,
+                           @Qualifier("queryPipelineExecutor") AsyncTaskExecutor pipelineExecutor,
+                           CloudAuditConfig config) {
+        this.pipelineService = pipelineService;
+        this.pipelineExecutor = pipelineExecutor;
+        this.config = config;
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.eventExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "job-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        eventExecutor.shutdownNow();
+    }
+    
+    public QueryJob submit(QueryRequest request) {
+        evictFinishedJobs();
+        
+        QueryJob job = new QueryJob(UUID.randomUUID().toString(), eventExecutor);
+        jobs.put(job.getId(), job);
+        
+        try {
+            Future<?> task = pipelineExecutor.submit(() -> run(job, request));
+            job.getCancellation().onCancel(() -> task.cancel(true));
+        } catch (RuntimeException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        
+        return job;
+    }
+    
+    public Optional<QueryJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+    
+    // Failing the job first means whatever the interrupted pipeline reports afterwards is ignored
+    public Optional<QueryJob> cancel(String jobId) {
+        Optional<QueryJob> job = getJob(jobId);
+        job.ifPresent(found -> {
+            found.fail("Query was cancelled.");
+            found.getCancellation().cancel();
+        });
+        return job;
+    }
+    
+    // The worker thread only joins the async pipeline, which keeps the job within the executor's bounds
+    private void run(QueryJob job, QueryRequest request) {
+        try {
+            QueryResponse response = pipelineService.executeAsync(request, job::publish, job.getCancellation()).get();
+            if (response.getError() != null) {
+                job.fail(response.getError());
+            } else {
+                job.complete(response);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.getCancellation().cancel();
+            job.fail("Query was interrupted.");
+        } catch (ExecutionException e) {
+            fail(job, AsyncRetry.unwrap(e));
+        } catch (RuntimeException e) {
+            fail(job, e);
+        }
+    }
+    
+    private void fail(QueryJob job, Throwable error) {
+        if (error instanceof CancellationException) {
+            log.info("Query job {} was cancelled", job.getId());
+            job.fail("Query was cancelled.");
+        } else if (error instanceof QueryLimitExceededException) {
+            log.warn("Query job refused by a query limit: {}", error.getMessage());
+            job.fail(error.getMessage());
+        } else {
+            log.error("Error processing query job: {}", error.getMessage());
+            job.fail("Error processing query. Please try again.");
+        }
+    }
+    
+    private void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(config.getResultRetentionMinutes()));
+        jobs.values().removeIf(job -> job.isFinishedBefore(cutoff));
+    }
+}
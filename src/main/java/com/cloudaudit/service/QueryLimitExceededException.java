@@ -0,0 +1,21 @@
+package com.cloudaudit.service;
+
+import java.util.Optional;
+
+// Raised when a query is refused or stopped by a cost or concurrency limit; the message is safe to show users
+public class QueryLimitExceededException extends RuntimeException {
+    
+    public QueryLimitExceededException(String message) {
+        super(message);
+    }
+    
+    // Async stages wrap failures, so the limit can sit a few causes deep
+    public static Optional<QueryLimitExceededException> find(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryLimitExceededException) {
+                return Optional.of((QueryLimitExceededException) cause);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,287 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.dto.QueryProgressEvent;
+import com.cloudaudit.dto.QueryRequest;
+import com.cloudaudit.dto.QueryResponse;
+import com.cloudaudit.model.QueryCancellation;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.model.QueryStage;
+import com.cloudaudit.model.ResultCursor;
+import com.cloudaudit.model.SqlRewrite;
+import com.cloudaudit.model.TableSchema;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class QueryPipelineService {
+    
+    private static final int PREVIEW_ROW_LIMIT = 100;
+    
+    private final AthenaService athenaService;
+    private final SqlQueryService sqlQueryService;
+    private final DataMaskingService dataMaskingService;
+    private final SchemaCatalogService schemaCatalogService;
+    private final QueryExecutionRegistry executionRegistry;
+    private final PartitionPredicateRewriter sqlRewriter;
+    private final AthenaAdmissionControl admissionControl;
+    private final PipelineMetrics metrics;
+    private final CloudAuditConfig config;
+    
+    public QueryPipelineService(AthenaService athenaService,
+                                SqlQueryService sqlQueryService,
+                                DataMaskingService dataMaskingService,
+                                SchemaCatalogService schemaCatalogService,
+                                QueryExecutionRegistry executionRegistry,
+                                PartitionPredicateRewriter sqlRewriter,
+                                AthenaAdmissionControl admissionControl,
+                                PipelineMetrics metrics,
+                                CloudAuditConfig config) {
+        this.athenaService = athenaService;
+        this.sqlQueryService = sqlQueryService;
+        this.dataMaskingService = dataMaskingService;
+        this.schemaCatalogService = schemaCatalogService;
+        this.executionRegistry = executionRegistry;
+        this.sqlRewriter = sqlRewriter;
+        this.admissionControl = admissionControl;
+        this.metrics = metrics;
+        this.config = config;
+    }
+    
+    public CompletableFuture<QueryResponse> executeAsync(QueryRequest request, QueryCancellation cancellation) {
+        return executeAsync(request, event -> { }, cancellation);
+    }
+    
+    // Composed on SDK futures, so no thread waits on Athena or Bedrock; job workers join the result.
+    // Cancelling stops the Athena execution and outstanding Bedrock calls.
+    public CompletableFuture<QueryResponse> executeAsync(QueryRequest request,
+                                                        Consumer<QueryProgressEvent> progress,
+                                                        QueryCancellation cancellation) {
+        AsyncLimiter unbounded = new AsyncLimiter(0);
+        return previewAsync(request, progress, cancellation)
+            .thenCompose(preview -> completeAsync(request, preview, progress, unbounded, cancellation));
+    }
+    
+    // One schema probe and prompt context serve the whole batch. Each question moves on to Athena as soon as
+    // its own SQL is ready, so later questions are still generating while earlier ones run.
+    public List<CompletableFuture<QueryResponse>> executeBatch(List<QueryRequest> requests, QueryCancellation cancellation) {
+        AsyncLimiter bedrock = new AsyncLimiter(config.getBatchBedrockConcurrency());
+        CompletableFuture<TableSchema> schema = metrics.timeAsync(PipelineMetrics.SCHEMA, schemaCatalogService::getSchemaAsync);
+        CompletableFuture<String> context = schema.thenApply(tableSchema -> tableSchema.isEmpty() ? null : buildContext(tableSchema));
+        
+        List<CompletableFuture<QueryResponse>> answers = new ArrayList<>(requests.size());
+        for (QueryRequest request : requests) {
+            answers.add(context.thenCompose(prompt -> prompt == null
+                    ? CompletableFuture.completedFuture(new Preview(noColumnsResponse(), QueryResultSet.empty()))
+                    : previewAsync(request, schema.join(), prompt, bedrock, event -> { }, cancellation))
+                .thenCompose(preview -> completeAsync(request, preview, event -> { }, bedrock, cancellation)));
+        }
+        return answers;
+    }
+    
+    // Results are handed over as soon as they are formatted; description chunks follow as Bedrock emits them
+    public CompletableFuture<QueryResponse> executeStreaming(QueryRequest request,
+                                                             Consumer<QueryProgressEvent> progress,
+                                                             Consumer<QueryResponse> onResults,
+                                                             Consumer<String> onDescriptionChunk,
+                                                             QueryCancellation cancellation) {
+        return previewAsync(request, progress, cancellation).thenCompose(preview -> {
+            QueryResponse response = preview.getResponse();
+            if (preview.hasRows()) {
+                formatPreview(response, preview.getMaskedRows(), response.isPartial());
+            }
+            onResults.accept(response);
+            
+            if (!preview.hasRows() || !request.isIncludeDescription()) {
+                return CompletableFuture.completedFuture(response);
+            }
+            
+            return metrics.timeAsync(PipelineMetrics.DESCRIPTION, () -> cancellation.track(sqlQueryService.streamDescription(
+                    request.getUserQuery(), preview.getMaskedRows(), response.isPartial(), onDescriptionChunk)))
+                .thenApply(text -> {
+                    response.setDescription(text);
+                    return response;
+                });
+        });
+    }
+    
+    private CompletableFuture<Preview> previewAsync(QueryRequest request,
+                                                    Consumer<QueryProgressEvent> progress,
+                                                    QueryCancellation cancellation) {
+        return metrics.timeAsync(PipelineMetrics.SCHEMA, schemaCatalogService::getSchemaAsync).thenCompose(schema -> {
+            if (schema.isEmpty()) {
+                return CompletableFuture.completedFuture(new Preview(noColumnsResponse(), QueryResultSet.empty()));
+            }
+            return previewAsync(request, schema, buildContext(schema), new AsyncLimiter(0), progress, cancellation);
+        });
+    }
+    
+    // Bedrock calls go through the limiter; admission control already bounds the Athena side
+    private CompletableFuture<Preview> previewAsync(QueryRequest request,
+                                                    TableSchema schema,
+                                                    String context,
+                                                    AsyncLimiter bedrock,
+                                                    Consumer<QueryProgressEvent> progress,
+                                                    QueryCancellation cancellation) {
+        progress.accept(new QueryProgressEvent(QueryStage.GENERATING_SQL, null));
+        // Rewritten after the SQL cache so resolved relative dates are never cached
+        return metrics.timeAsync(PipelineMetrics.SQL_GENERATION, () -> cancellation.track(bedrock.submit(() ->
+                    sqlQueryService.generateSqlQueryAsync(request.getUserQuery(), context)))
+                .thenApply(sqlQuery -> sqlRewriter.rewrite(sqlQuery, schema)))
+            .thenCompose(rewrite -> {
+                progress.accept(new QueryProgressEvent(QueryStage.SQL_GENERATED, null));
+                return metrics.timeAsync(PipelineMetrics.ADMISSION, () ->
+                        cancellation.track(admissionControl.acquire(request.getCaller())))
+                    .thenCompose(permit -> startAdmitted(rewrite.getSql(), permit, cancellation))
+                    .thenCompose(queryExecId -> fetchPreview(rewrite, queryExecId, progress, cancellation));
+            });
+    }
+    
+    // Includes waiting for Athena; queue and engine time are recorded separately from its statistics
+    private CompletableFuture<Preview> fetchPreview(SqlRewrite rewrite,
+                                                    String queryExecId,
+                                                    Consumer<QueryProgressEvent> progress,
+                                                    QueryCancellation cancellation) {
+        QueryResponse response = startResponse(rewrite.getSql(), queryExecId);
+        progress.accept(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, null));
+        Consumer<QueryExecution> athenaProgress = execution ->
+            progress.accept(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, bytesScanned(execution)));
+        
+        return metrics.timeAsync(PipelineMetrics.RESULT_FETCH, () -> cancellation.track(
+                athenaService.awaitExecutionAsync(queryExecId, athenaProgress).thenCompose(execution -> {
+                    sqlRewriter.recordScan(rewrite, bytesScanned(execution));
+                    // One row past the preview tells us whether the result is partial
+                    return athenaService.fetchQueryResultsAsync(queryExecId, PREVIEW_ROW_LIMIT + 1)
+                        .thenApply(results -> {
+                            progress.accept(new QueryProgressEvent(QueryStage.RESULTS_READY, bytesScanned(execution)));
+                            return toPreview(response, results);
+                        });
+                })));
+    }
+    
+    // The Bedrock round-trip starts first so formatting overlaps with it
+    private CompletableFuture<QueryResponse> completeAsync(QueryRequest request,
+                                                           Preview preview,
+                                                           Consumer<QueryProgressEvent> progress,
+                                                           AsyncLimiter bedrock,
+                                                           QueryCancellation cancellation) {
+        QueryResponse response = preview.getResponse();
+        if (!preview.hasRows()) {
+            return CompletableFuture.completedFuture(response);
+        }
+        
+        CompletableFuture<String> description = request.isIncludeDescription()
+            ? metrics.timeAsync(PipelineMetrics.DESCRIPTION, () -> cancellation.track(bedrock.submit(() ->
+                sqlQueryService.describeResultsAsync(request.getUserQuery(), preview.getMaskedRows(), response.isPartial()))))
+            : null;
+        formatPreview(response, preview.getMaskedRows(), response.isPartial());
+        
+        if (description == null) {
+            return CompletableFuture.completedFuture(response);
+        }
+        return description.thenApply(text -> {
+            response.setDescription(text);
+            progress.accept(new QueryProgressEvent(QueryStage.DESCRIPTION_READY, null));
+            return response;
+        });
+    }
+    
+    // The permit is released once Athena reports a terminal state, or straight away if the start fails
+    private CompletableFuture<String> startAdmitted(String sqlQuery,
+                                                    AthenaAdmissionControl.Permit permit,
+                                                    QueryCancellation cancellation) {
+        return metrics.timeAsync(PipelineMetrics.ATHENA_START, () -> athenaService.executeQueryAsync(sqlQuery))
+            .whenComplete((queryExecId, error) -> {
+                if (error != null) {
+                    permit.release();
+                } else {
+                    cancellation.onCancel(() -> athenaService.cancelQuery(queryExecId));
+                    athenaService.awaitExecutionAsync(queryExecId).whenComplete((execution, failure) -> permit.release());
+                }
+            });
+    }
+    
+    private Preview toPreview(QueryResponse response, QueryResultSet results) {
+        // SECURITY: Mask all sensitive data before returning
+        QueryResultSet maskedPreview = dataMaskingService.maskSensitiveData(results.head(PREVIEW_ROW_LIMIT));
+        
+        if (maskedPreview.isEmpty()) {
+            noDataResponse(response);
+        } else {
+            response.setPartial(results.size() > PREVIEW_ROW_LIMIT);
+        }
+        return new Preview(response, maskedPreview);
+    }
+    
+    private QueryResponse noColumnsResponse() {
+        QueryResponse response = new QueryResponse();
+        response.setError("No columns found for the configured table");
+        return response;
+    }
+    
+    private QueryResponse startResponse(String sqlQuery, String queryExecId) {
+        QueryResponse response = new QueryResponse();
+        // SECURITY: Mask SQL query to hide database structure
+        response.setSqlQuery(dataMaskingService.maskSqlQuery(sqlQuery));
+        
+        executionRegistry.register(queryExecId);
+        response.setQueryExecutionId(queryExecId);
+        return response;
+    }
+    
+    private QueryResponse noDataResponse(QueryResponse response) {
+        response.setColumns(List.of());
+        response.setRows(List.of());
+        response.setDescription("");
+        return response;
+    }
+    
+    private void formatPreview(QueryResponse response, QueryResultSet maskedPreview, boolean isPartial) {
+        response.setPartial(isPartial);
+        response.setColumns(maskedPreview.getColumns());
+        response.setRows(maskedPreview.getRows());
+        
+        if (isPartial) {
+            String resultsUrl = "/api/results/" + response.getQueryExecutionId();
+            response.setCsvDownloadUrl(resultsUrl + "/csv");
+            response.setNextPageUrl(resultsUrl + "?cursor=" + new ResultCursor(null, maskedPreview.size()).encode());
+        }
+    }
+    
+    private Long bytesScanned(QueryExecution execution) {
+        return execution.statistics() == null ? null : execution.statistics().dataScannedInBytes();
+    }
+    
+    private String buildContext(TableSchema schema) {
+        StringBuilder context = new StringBuilder();
+        context.append("Database: [REDACTED]")
+               .append(", Table: [REDACTED]")
+               .append("\n\nColumns:\n");
+        
+        // SECURITY: Only column names and types are shared, never sample data
+        context.append(schema.getAllColumns().stream()
+                .map(column -> column.getName() + " " + column.getType())
+                .collect(Collectors.joining("\n")));
+        
+        return context.toString();
+    }
+    
+    @Value
+    private static class Preview {
+        QueryResponse response;
+        QueryResultSet maskedRows;
+        
+        boolean hasRows() {
+            return response.getError() == null && !maskedRows.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class ResultExportService {
+    
+    private final AthenaService athenaService;
+    private final DataMaskingService dataMaskingService;
+    private final CloudAuditConfig config;
+    private final PipelineMetrics metrics;
+    private final JsonFactory jsonFactory;
+    private final JsonFactory cborFactory = new CBORFactory();
+    
+    public ResultExportService(AthenaService athenaService,
+                               DataMaskingService dataMaskingService,
+                               CloudAuditConfig config,
+                               ObjectMapper objectMapper,
+                               PipelineMetrics metrics) {
+        this.athenaService = athenaService;
+        this.dataMaskingService = dataMaskingService;
+        this.config = config;
+        this.metrics = metrics;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+    
+    public void writeCsv(String queryExecutionId, OutputStream out) throws IOException {
+        Timer.Sample sample = metrics.startStage();
+        CsvSink sink = new CsvSink(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        long rowCount = exportRows(queryExecutionId, sink);
+        
+        sink.printer.flush();
+        metrics.stopStage(sample, PipelineMetrics.CSV_EXPORT);
+        log.info("Exported {} rows as CSV", rowCount);
+    }
+    
+    // {"columns": [...], "rows": [[...], ...]} written token by token, as JSON or CBOR
+    public void writeRows(String queryExecutionId, OutputStream out, boolean cbor) throws IOException {
+        Timer.Sample sample = metrics.startStage();
+        JsonGenerator generator = (cbor ? cborFactory : jsonFactory).createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        
+        long rowCount = exportRows(queryExecutionId, new RowSink() {
+            @Override
+            public void header(List<String> columns) throws IOException {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("columns");
+                for (String column : columns) {
+                    generator.writeString(column);
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("rows");
+            }
+            
+            @Override
+            public void row(String[] row) throws IOException {
+                generator.writeStartArray();
+                for (String value : row) {
+                    generator.writeString(value);
+                }
+                generator.writeEndArray();
+            }
+        });
+        
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+        metrics.stopStage(sample, PipelineMetrics.ROWS_EXPORT);
+        log.info("Exported {} rows as {}", rowCount, cbor ? "CBOR" : "JSON");
+    }
+    
+    private long exportRows(String queryExecutionId, RowSink sink) throws IOException {
+        // Rows are masked and written one batch at a time, so memory stays bounded by the batch size
+        int batchSize = Math.max(config.getResultPageSize(), config.getMaskingParallelThreshold());
+        
+        try (AthenaResultStream stream = athenaService.streamQueryResults(queryExecutionId)) {
+            List<String> columns = stream.getColumns();
+            DataMaskingService.RowMasker masker = dataMaskingService.rowMasker(columns);
+            sink.header(columns);
+            
+            List<String[]> batch = new ArrayList<>(batchSize);
+            long rowCount = 0;
+            while (stream.hasNext()) {
+                batch.add(stream.next());
+                if (batch.size() >= batchSize) {
+                    rowCount += writeBatch(sink, masker, batch);
+                }
+            }
+            rowCount += writeBatch(sink, masker, batch);
+            return rowCount;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Result export interrupted");
+        }
+    }
+    
+    private int writeBatch(RowSink sink, DataMaskingService.RowMasker masker, List<String[]> batch) throws IOException {
+        // SECURITY: Mask all sensitive data before it leaves the application
+        for (String[] row : dataMaskingService.maskRows(masker, batch)) {
+            sink.row(row);
+        }
+        
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+    
+    private interface RowSink {
+        void header(List<String> columns) throws IOException;
+        
+        void row(String[] row) throws IOException;
+    }
+    
+    private static final class CsvSink implements RowSink {
+        private final BufferedWriter writer;
+        private CSVPrinter printer;
+        
+        private CsvSink(BufferedWriter writer) {
+            this.writer = writer;
+        }
+        
+        @Override
+        public void header(List<String> columns) throws IOException {
+            printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(columns.toArray(new String[0])).build());
+        }
+        
+        @Override
+        public void row(String[] row) throws IOException {
+            printer.printRecord((Object[]) row);
+        }
+    }
+}
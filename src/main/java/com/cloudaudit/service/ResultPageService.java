@@ -0,0 +1,128 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.dto.ResultPage;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.model.ResultCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.athena.model.ColumnInfo;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class ResultPageService {
+    
+    // GetQueryResults never returns more than this many rows per call
+    private static final int ATHENA_MAX_PAGE_SIZE = 1000;
+    
+    private final AthenaService athenaService;
+    private final AthenaResultCache resultCache;
+    private final DataMaskingService dataMaskingService;
+    private final CloudAuditConfig config;
+    
+    public ResultPageService(AthenaService athenaService,
+                             AthenaResultCache resultCache,
+                             DataMaskingService dataMaskingService,
+                             CloudAuditConfig config) {
+        this.athenaService = athenaService;
+        this.resultCache = resultCache;
+        this.dataMaskingService = dataMaskingService;
+        this.config = config;
+    }
+    
+    public ResultPage getPage(String queryExecutionId, ResultCursor cursor, int pageSize) throws InterruptedException {
+        int limit = Math.max(1, Math.min(pageSize, config.getResultPageMaxSize()));
+        
+        // Offsets from the start of the result can be served straight from a materialized result set
+        if (cursor.getPageToken() == null) {
+            Optional<QueryResultSet> cached = resultCache.getResults(queryExecutionId);
+            if (cached.isPresent()) {
+                return fromResultSet(queryExecutionId, cached.get(), cursor.getOffset(), limit);
+            }
+        }
+        
+        return fromAthena(queryExecutionId, cursor, limit);
+    }
+    
+    private ResultPage fromResultSet(String queryExecutionId, QueryResultSet results, int offset, int limit) {
+        int from = Math.min(offset, results.size());
+        int to = Math.min(results.size(), from + limit);
+        String nextCursor = to < results.size() ? new ResultCursor(null, to).encode() : null;
+        
+        return maskedPage(queryExecutionId, results.getColumns(), results.getRows().subList(from, to), nextCursor);
+    }
+    
+    // Reads only the Athena pages the cursor touches, so deep pages never materialize the whole result
+    private ResultPage fromAthena(String queryExecutionId, ResultCursor cursor, int limit) throws InterruptedException {
+        List<String> columns = null;
+        List<String[]> rows = new ArrayList<>(limit);
+        String pageToken = cursor.getPageToken();
+        int skip = cursor.getOffset();
+        
+        while (true) {
+            // Only the rows this page needs are requested; when the request ends exactly at the last row
+            // served, Athena's next token becomes the next cursor and the following page starts fresh
+            int expectedHeader = pageToken == null ? 1 : 0;
+            int wanted = (int) Math.min(ATHENA_MAX_PAGE_SIZE, (long) expectedHeader + skip + limit - rows.size());
+            GetQueryResultsResponse page = athenaService.fetchResultPage(queryExecutionId, pageToken, wanted);
+            List<ColumnInfo> columnInfo = page.resultSet().resultSetMetadata().columnInfo();
+            if (columns == null) {
+                columns = columnInfo.stream().map(ColumnInfo::name).collect(Collectors.toList());
+            }
+            
+            List<Row> pageRows = page.resultSet().rows();
+            // The first page repeats the column names as its first row
+            int header = pageToken == null && !pageRows.isEmpty() ? 1 : 0;
+            int available = pageRows.size() - header;
+            
+            if (pageToken == null && page.nextToken() == null) {
+                // The whole result fits in one Athena page; keep it for later offsets
+                cacheSinglePage(queryExecutionId, columns, pageRows, header);
+            }
+            
+            int from = Math.min(skip, available);
+            int to = Math.min(available, from + limit - rows.size());
+            for (int i = from; i < to; i++) {
+                rows.add(AthenaResultStream.toValues(pageRows.get(header + i), columnInfo.size()));
+            }
+            
+            if (rows.size() == limit) {
+                String nextCursor = to < available
+                    ? new ResultCursor(pageToken, to).encode()
+                    : nextPageCursor(page);
+                return maskedPage(queryExecutionId, columns, rows, nextCursor);
+            }
+            
+            skip = Math.max(0, skip - available);
+            if (page.nextToken() == null) {
+                return maskedPage(queryExecutionId, columns, rows, null);
+            }
+            pageToken = page.nextToken();
+        }
+    }
+    
+    private String nextPageCursor(GetQueryResultsResponse page) {
+        return page.nextToken() == null ? null : new ResultCursor(page.nextToken(), 0).encode();
+    }
+    
+    private void cacheSinglePage(String queryExecutionId, List<String> columns, List<Row> pageRows, int header) {
+        QueryResultSet.Builder results = QueryResultSet.builder(columns);
+        for (int i = header; i < pageRows.size(); i++) {
+            results.addRow(AthenaResultStream.toValues(pageRows.get(i), columns.size()));
+        }
+        resultCache.putResults(queryExecutionId, results.build());
+    }
+    
+    private ResultPage maskedPage(String queryExecutionId, List<String> columns, List<String[]> rows, String nextCursor) {
+        // SECURITY: Mask all sensitive data before returning
+        List<String[]> masked = dataMaskingService.maskRows(dataMaskingService.rowMasker(columns), rows);
+        return new ResultPage(queryExecutionId, columns, masked, nextCursor);
+    }
+}
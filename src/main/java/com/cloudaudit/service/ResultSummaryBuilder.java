@@ -0,0 +1,197 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Encodes a result preview for the description prompt within a fixed character budget:
+// constant columns are stated once, each remaining column gets precomputed statistics,
+// and sample rows with truncated cells fill whatever budget is left
+@Component
+public class ResultSummaryBuilder {
+    
+    private static final Pattern TIMESTAMP = Pattern.compile("\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}:\\d{2}.*");
+    private static final Pattern INTEGER = Pattern.compile("-?\\d{1,18}");
+    
+    private final CloudAuditConfig config;
+    
+    public ResultSummaryBuilder(CloudAuditConfig config) {
+        this.config = config;
+    }
+    
+    public String summarize(QueryResultSet results) {
+        if (results.isEmpty()) {
+            return "";
+        }
+        
+        Budget budget = new Budget(config.getDescriptionPromptMaxChars());
+        List<String> columns = results.getColumns();
+        List<Integer> varying = new ArrayList<>();
+        List<String> constants = new ArrayList<>();
+        
+        for (int i = 0; i < columns.size(); i++) {
+            String constant = constantValue(results, i);
+            if (constant != null) {
+                constants.add(columns.get(i) + "=" + truncate(constant));
+            } else {
+                varying.add(i);
+            }
+        }
+        
+        budget.append("Rows: " + results.size() + "\n");
+        if (!constants.isEmpty()) {
+            budget.append("Same in every row: " + String.join(", ", constants) + "\n");
+        }
+        
+        if (!varying.isEmpty()) {
+            budget.append("Column statistics:\n");
+            for (int column : varying) {
+                budget.append("- " + columns.get(column) + ": " + describeColumn(results, column) + "\n");
+            }
+            
+            int included = 0;
+            // Rows without their header line would be unreadable
+            if (budget.append("Sample rows (tab-separated, long values truncated):\n"
+                    + varying.stream().map(columns::get).collect(Collectors.joining("\t")) + "\n")) {
+                for (String[] row : results.getRows()) {
+                    String line = varying.stream()
+                            .map(column -> column < row.length ? truncate(row[column]) : "")
+                            .collect(Collectors.joining("\t"));
+                    // A row too wide for what is left is skipped; narrower rows after it may still fit
+                    if (budget.append(line + "\n")) {
+                        included++;
+                    }
+                }
+            }
+            
+            if (included < results.size()) {
+                budget.appendReserved("(" + (results.size() - included) + " more rows omitted)\n");
+            }
+        }
+        
+        return budget.toString();
+    }
+    
+    private String describeColumn(QueryResultSet results, int column) {
+        Map<String, Integer> counts = new HashMap<>();
+        int empty = 0;
+        boolean timestamps = true;
+        boolean integers = true;
+        
+        for (String[] row : results.getRows()) {
+            String value = column < row.length ? row[column] : null;
+            if (value == null || value.isEmpty()) {
+                empty++;
+                continue;
+            }
+            counts.merge(value, 1, Integer::sum);
+            timestamps &= TIMESTAMP.matcher(value).matches();
+            integers &= INTEGER.matcher(value).matches();
+        }
+        
+        StringBuilder description = new StringBuilder();
+        description.append(counts.size()).append(" distinct");
+        if (empty > 0) {
+            description.append(", ").append(empty).append(" empty");
+        }
+        
+        if (counts.isEmpty()) {
+            return description.toString();
+        }
+        
+        if (timestamps) {
+            // ISO-8601 timestamps order lexicographically
+            description.append(", range ")
+                    .append(counts.keySet().stream().min(String::compareTo).get())
+                    .append(" to ")
+                    .append(counts.keySet().stream().max(String::compareTo).get());
+        } else if (integers) {
+            description.append(", min ")
+                    .append(counts.keySet().stream().mapToLong(Long::parseLong).min().getAsLong())
+                    .append(", max ")
+                    .append(counts.keySet().stream().mapToLong(Long::parseLong).max().getAsLong());
+        }
+        
+        // Top values only carry information when some of them repeat; a time range already covers timestamps
+        if (!timestamps && counts.size() < results.size() - empty) {
+            description.append(", top: ").append(counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(config.getDescriptionTopValues())
+                    .map(entry -> truncate(entry.getKey()) + " (" + entry.getValue() + ")")
+                    .collect(Collectors.joining(", ")));
+        }
+        
+        return description.toString();
+    }
+    
+    private String constantValue(QueryResultSet results, int column) {
+        if (results.size() < 2) {
+            return null;
+        }
+        
+        String first = valueAt(results.getRow(0), column);
+        for (String[] row : results.getRows()) {
+            String value = valueAt(row, column);
+            if (!value.equals(first)) {
+                return null;
+            }
+        }
+        return first;
+    }
+    
+    private String valueAt(String[] row, int column) {
+        return column < row.length && row[column] != null ? row[column] : "";
+    }
+    
+    private String truncate(String value) {
+        if (value == null) {
+            return "";
+        }
+        
+        // Tabs and newlines inside JSON columns would break the row layout
+        String flat = value.replaceAll("\\s+", " ");
+        int limit = config.getDescriptionCellMaxChars();
+        if (flat.length() <= limit) {
+            return flat;
+        }
+        return flat.substring(0, limit) + "...(+" + (flat.length() - limit) + " chars)";
+    }
+    
+    private static final class Budget {
+        // Room kept back so the omitted-rows note always fits
+        private static final int RESERVE = 64;
+        
+        private final StringBuilder text = new StringBuilder();
+        private final int limit;
+        
+        private Budget(int limit) {
+            this.limit = Math.max(0, limit - RESERVE);
+        }
+        
+        // Lines that do not fit are dropped whole, so the next one still gets a chance
+        private boolean append(String line) {
+            if (text.length() + line.length() > limit) {
+                return false;
+            }
+            text.append(line);
+            return true;
+        }
+        
+        private void appendReserved(String line) {
+            text.append(line);
+        }
+        
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.TableSchema;
+import com.cloudaudit.model.TableSchema.TableColumn;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.athena.model.AthenaException;
+import software.amazon.awssdk.services.athena.model.GetTableMetadataRequest;
+import software.amazon.awssdk.services.athena.model.TableMetadata;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class SchemaCatalogService {
+    
+    private final AthenaClient athenaClient;
+    private final AthenaService athenaService;
+    private final CloudAuditConfig config;
+    // A ReentrantLock rather than synchronized, so virtual threads are not pinned during the Athena call
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "schema-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private volatile TableSchema cachedSchema;
+    
+    public SchemaCatalogService(AthenaClient athenaClient,
+                                AthenaService athenaService,
+                                CloudAuditConfig config) {
+        this.athenaClient = athenaClient;
+        this.athenaService = athenaService;
+        this.config = config;
+    }
+    
+    public TableSchema getSchema() throws InterruptedException {
+        TableSchema schema = cachedSchema;
+        if (schema != null && !isExpired(schema)) {
+            return schema;
+        }
+        
+        refreshLock.lock();
+        try {
+            schema = cachedSchema;
+            if (schema != null && !isExpired(schema)) {
+                return schema;
+            }
+            
+            try {
+                TableSchema loaded = loadSchema();
+                cachedSchema = loaded;
+                return loaded;
+            } catch (RuntimeException e) {
+                if (schema == null) {
+                    throw e;
+                }
+                // Keep serving the previous schema rather than failing user queries
+                log.warn("Schema refresh failed, serving cached schema: {}", e.getMessage());
+                return schema;
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    // Cache hits complete immediately; a refresh runs on its own thread so async callers never block
+    public CompletableFuture<TableSchema> getSchemaAsync() {
+        TableSchema schema = cachedSchema;
+        if (schema != null && !isExpired(schema)) {
+            return CompletableFuture.completedFuture(schema);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getSchema();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }, refreshExecutor);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+    
+    public void invalidate() {
+        cachedSchema = null;
+        log.info("Schema cache invalidated");
+    }
+    
+    private boolean isExpired(TableSchema schema) {
+        Duration ttl = Duration.ofMinutes(config.getSchemaCacheTtlMinutes());
+        return !schema.getLoadedAt().plus(ttl).isAfter(Instant.now());
+    }
+    
+    private TableSchema loadSchema() throws InterruptedException {
+        try {
+            GetTableMetadataRequest request = GetTableMetadataRequest.builder()
+                    .catalogName(config.getCatalogName())
+                    .databaseName(config.getDatabaseName())
+                    .tableName(config.getTableName())
+                    .build();
+            
+            TableMetadata metadata = athenaClient.getTableMetadata(request).tableMetadata();
+            log.info("Loaded table schema from data catalog");
+            return new TableSchema(
+                toColumns(metadata.columns()),
+                toColumns(metadata.partitionKeys()),
+                Instant.now()
+            );
+        } catch (AthenaException e) {
+            // Catalogs without metadata API access still allow a zero-row probe
+            log.warn("Table metadata lookup failed, falling back to probe query: {}", e.getMessage());
+            String probeQuery = String.format("SELECT * FROM %s LIMIT 0", config.getTableName());
+            List<TableColumn> columns = athenaService.fetchResultColumns(athenaService.executeQuery(probeQuery));
+            return new TableSchema(columns, Collections.emptyList(), Instant.now());
+        }
+    }
+    
+    private List<TableColumn> toColumns(List<software.amazon.awssdk.services.athena.model.Column> columns) {
+        return columns.stream()
+                .map(column -> new TableColumn(column.name(), column.type()))
+                .collect(Collectors.toList());
+    }
+}
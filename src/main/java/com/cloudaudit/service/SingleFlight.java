@@ -0,0 +1,139 @@
+package com.cloudaudit.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Concurrent callers with the same key share one backend call; sync and async callers
+// share the same in-flight map, so either kind can join the other's call
+@Slf4j
+final class SingleFlight<K, V> {
+    
+    private final String name;
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    
+    SingleFlight(String name, PipelineMetrics metrics) {
+        this.name = name;
+        metrics.registerSingleFlight(name, this);
+    }
+    
+    V execute(K key, Supplier<V> call) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(join(existing));
+        }
+        
+        executions.incrementAndGet();
+        try {
+            V value = call.get();
+            land(key, flight);
+            flight.result.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            land(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return join(existing);
+        }
+        
+        executions.incrementAndGet();
+        CompletableFuture<V> pending;
+        try {
+            pending = call.get();
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+        
+        CompletableFuture<V> backendCall = pending;
+        flight.abandon = () -> {
+            // New callers start a fresh call instead of joining one that is being cancelled
+            land(key, flight);
+            backendCall.cancel(true);
+        };
+        pending.whenComplete((value, error) -> {
+            land(key, flight);
+            if (error != null) {
+                flight.result.completeExceptionally(AsyncRetry.unwrap(error));
+            } else {
+                flight.result.complete(value);
+            }
+        });
+        
+        // Each caller gets its own copy so one caller cancelling does not fail the others
+        return flight.copy();
+    }
+    
+    long getExecutionCount() {
+        return executions.get();
+    }
+    
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+    
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+    
+    private CompletableFuture<V> join(Flight<V> flight) {
+        coalesced.incrementAndGet();
+        flight.followers.incrementAndGet();
+        return flight.copy();
+    }
+    
+    private void land(K key, Flight<V> flight) {
+        inFlight.remove(key, flight);
+        int followers = flight.followers.get();
+        if (followers > 0) {
+            log.debug("{}: {} concurrent callers shared one call", name, followers + 1);
+        }
+    }
+    
+    private V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger followers = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        // Set for async calls only; blocking calls cannot be abandoned
+        private volatile Runnable abandon;
+        
+        // The backend call is only abandoned once the leader and every follower have cancelled
+        private CompletableFuture<V> copy() {
+            CompletableFuture<V> copy = result.copy();
+            copy.whenComplete((value, error) -> {
+                Runnable abandonCall = abandon;
+                if (copy.isCancelled() && abandonCall != null
+                        && cancelled.incrementAndGet() == followers.get() + 1) {
+                    abandonCall.run();
+                }
+            });
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Generated SQL keyed by normalized question and schema fingerprint; a schema change
+// alters the fingerprint, so stale SQL is never served against new columns
+@Slf4j
+@Component
+public class SqlQueryCache {
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "the", "in", "on", "of", "for", "to", "by", "with", "at", "and",
+        "me", "show", "list", "find", "get", "give", "please", "all", "any",
+        "is", "are", "was", "were", "be", "been", "there", "that", "do", "does", "did"
+    );
+    
+    // A phrasing that differs in one of these can mean the opposite query
+    private static final Set<String> NEGATIONS = Set.of(
+        "not", "no", "without", "except", "excluding", "never", "non", "unsuccessful"
+    );
+    
+    private final CloudAuditConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<CacheKey, CachedSql> entries;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong similarHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public SqlQueryCache(CloudAuditConfig config, PipelineMetrics metrics) {
+        this.config = config;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedSql> eldest) {
+                return size() > config.getSqlCacheMaxEntries();
+            }
+        };
+        metrics.registerSqlCache(this);
+    }
+    
+    public Optional<String> get(String userQuery, String context) {
+        if (config.getSqlCacheMaxEntries() <= 0) {
+            return Optional.empty();
+        }
+        
+        String fingerprint = fingerprint(context);
+        String normalized = normalize(userQuery);
+        
+        lock.lock();
+        try {
+            CachedSql exact = entries.get(new CacheKey(normalized, fingerprint));
+            if (exact != null && !isExpired(exact)) {
+                hits.incrementAndGet();
+                log.debug("SQL cache hit");
+                return Optional.of(exact.getSql());
+            }
+            
+            CachedSql similar = findSimilar(normalized, fingerprint);
+            if (similar != null) {
+                similarHits.incrementAndGet();
+                log.debug("SQL cache hit on similar phrasing");
+                return Optional.of(similar.getSql());
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+    
+    // Only validated SQL should be stored, since hits skip generation entirely
+    public void put(String userQuery, String context, String sql) {
+        if (config.getSqlCacheMaxEntries() <= 0) {
+            return;
+        }
+        
+        String normalized = normalize(userQuery);
+        CachedSql entry = new CachedSql(sql, tokens(normalized), Instant.now());
+        
+        lock.lock();
+        try {
+            entries.put(new CacheKey(normalized, fingerprint(context)), entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    public long getSimilarHitCount() {
+        return similarHits.get();
+    }
+    
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    static String normalize(String userQuery) {
+        return userQuery.toLowerCase()
+                .replaceAll("[^a-z0-9_]+", " ")
+                .trim();
+    }
+    
+    static Set<String> tokens(String normalized) {
+        return Arrays.stream(normalized.split(" "))
+                .filter(token -> !token.isEmpty() && !STOP_WORDS.contains(token))
+                .map(SqlQueryCache::stem)
+                .collect(Collectors.toSet());
+    }
+    
+    static double similarity(Set<String> left, Set<String> right) {
+        if (left.isEmpty() || right.isEmpty()) {
+            return 0;
+        }
+        
+        // Numbers and negations must agree exactly: "last 24h" is not "last 48h"
+        if (!guardTokens(left).equals(guardTokens(right))) {
+            return 0;
+        }
+        
+        Set<String> intersection = new HashSet<>(left);
+        intersection.retainAll(right);
+        return (double) intersection.size() / (left.size() + right.size() - intersection.size());
+    }
+    
+    private CachedSql findSimilar(String normalized, String fingerprint) {
+        double threshold = config.getSqlCacheSimilarityThreshold();
+        if (threshold <= 0) {
+            return null;
+        }
+        
+        Set<String> tokens = tokens(normalized);
+        CachedSql best = null;
+        double bestScore = threshold;
+        
+        Iterator<Map.Entry<CacheKey, CachedSql>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CacheKey, CachedSql> entry = iterator.next();
+            if (isExpired(entry.getValue())) {
+                iterator.remove();
+                continue;
+            }
+            if (!entry.getKey().getFingerprint().equals(fingerprint)) {
+                continue;
+            }
+            
+            double score = similarity(tokens, entry.getValue().getTokens());
+            if (score >= bestScore) {
+                best = entry.getValue();
+                bestScore = score;
+            }
+        }
+        
+        return best;
+    }
+    
+    private boolean isExpired(CachedSql entry) {
+        Duration ttl = Duration.ofMinutes(config.getSqlCacheTtlMinutes());
+        return !entry.getCreatedAt().plus(ttl).isAfter(Instant.now());
+    }
+    
+    private static Set<String> guardTokens(Set<String> tokens) {
+        return tokens.stream()
+                .filter(token -> NEGATIONS.contains(token) || token.chars().anyMatch(Character::isDigit))
+                .collect(Collectors.toSet());
+    }
+    
+    private static String stem(String token) {
+        return token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")
+                ? token.substring(0, token.length() - 1)
+                : token;
+    }
+    
+    private static String fingerprint(String context) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(context.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @Value
+    private static class CacheKey {
+        String normalizedQuery;
+        String fingerprint;
+    }
+    
+    @Value
+    private static class CachedSql {
+        String sql;
+        Set<String> tokens;
+        Instant createdAt;
+    }
+}
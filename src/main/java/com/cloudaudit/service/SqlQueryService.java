@@ -1,11 +1,13 @@
 package com.cloudaudit.service;
 
 import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -14,17 +16,71 @@ import java.util.stream.Collectors;
 @Service
 public class SqlQueryService {
     
+    private static final Pattern SELECT_START = Pattern.compile("\\bSELECT\\s", Pattern.CASE_INSENSITIVE);
+    
     private final BedrockService bedrockService;
+    private final SqlQueryCache sqlQueryCache;
+    private final ResultSummaryBuilder resultSummaryBuilder;
     private final CloudAuditConfig config;
     
-    public SqlQueryService(BedrockService bedrockService, CloudAuditConfig config) {
+    public SqlQueryService(BedrockService bedrockService,
+                           SqlQueryCache sqlQueryCache,
+                           ResultSummaryBuilder resultSummaryBuilder,
+                           CloudAuditConfig config) {
         this.bedrockService = bedrockService;
+        this.sqlQueryCache = sqlQueryCache;
+        this.resultSummaryBuilder = resultSummaryBuilder;
         this.config = config;
     }
     
-    public String generateSqlQuery(String userQuery, String context) {
-        String prompt = buildPrompt(userQuery, context);
-        String response = bedrockService.invokeClaude(prompt);
+    public CompletableFuture<String> generateSqlQueryAsync(String userQuery, String context) {
+        Optional<String> cached = sqlQueryCache.get(userQuery, context);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        
+        // Generation stops at the statement's terminating semicolon instead of waiting for the full completion
+        CompletableFuture<String> completion =
+            bedrockService.completeUntil(buildPrompt(userQuery, context), SqlQueryService::isCompleteStatement);
+        return AsyncRetry.linkCancellation(completion
+                .thenApply(this::validateSqlQuery)
+                .thenApply(sqlQuery -> {
+                    sqlQueryCache.put(userQuery, context, sqlQuery);
+                    return sqlQuery;
+                }), completion);
+    }
+    
+    public CompletableFuture<String> describeResultsAsync(String userQuery, QueryResultSet results, boolean isPartial) {
+        return bedrockService.invokeClaudeAsync(buildDescriptionPrompt(userQuery, results, isPartial));
+    }
+    
+    public CompletableFuture<String> streamDescription(String userQuery,
+                                                       QueryResultSet results,
+                                                       boolean isPartial,
+                                                       Consumer<String> onChunk) {
+        return bedrockService.streamClaude(buildDescriptionPrompt(userQuery, results, isPartial), onChunk);
+    }
+    
+    static boolean isCompleteStatement(CharSequence text) {
+        Matcher select = SELECT_START.matcher(text);
+        if (!select.find()) {
+            return false;
+        }
+        
+        // A semicolon inside a string literal does not end the statement
+        boolean inLiteral = false;
+        for (int i = select.start(); i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            } else if (c == ';' && !inLiteral) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private String validateSqlQuery(String response) {
         String cleanedQuery = cleanSqlQuery(response);
         
         if (!cleanedQuery.toUpperCase().trim().startsWith("SELECT")) {
@@ -34,29 +90,19 @@ public class SqlQueryService {
         return cleanedQuery;
     }
     
-    public String describeResults(String userQuery, List<Map<String, String>> results, boolean isPartial) {
-        StringBuilder resultsText = new StringBuilder();
+    private String buildDescriptionPrompt(String userQuery, QueryResultSet results, boolean isPartial) {
+        // Raw rows with JSON columns like requestparameters can exceed the model's context; send a budgeted summary
+        String resultsText = resultSummaryBuilder.summarize(results);
         
-        if (!results.isEmpty()) {
-            resultsText.append(String.join("\t", results.get(0).keySet())).append("\n");
-            
-            int limit = Math.min(100, results.size());
-            for (int i = 0; i < limit; i++) {
-                resultsText.append(String.join("\t", results.get(i).values())).append("\n");
-            }
-        }
-        
-        String prompt = String.format(
+        return String.format(
             "Given the following user query and results, provide a detailed description of the data:\n" +
             "User Query: %s\n" +
             "Results:\n%s\n\n" +
             "Respond in plain language with clear, actionable insights.%s",
             userQuery,
-            resultsText.toString(),
+            resultsText,
             isPartial ? " Note: This description is for the first 100 rows only." : ""
         );
-        
-        return bedrockService.invokeClaude(prompt);
     }
     
     private String buildPrompt(String userQuery, String context) {
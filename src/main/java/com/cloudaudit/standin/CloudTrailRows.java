@@ -0,0 +1,228 @@
+package com.cloudaudit.standin;
+
+import com.cloudaudit.model.QueryResultSet;
+import software.amazon.awssdk.services.athena.model.ColumnInfo;
+import software.amazon.awssdk.services.athena.model.Datum;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.ResultSet;
+import software.amazon.awssdk.services.athena.model.ResultSetMetadata;
+import software.amazon.awssdk.services.athena.model.Row;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+// Synthetic CloudTrail rows for the stand-in profile and benchmarks; fixed seeds keep runs comparable
+public final class CloudTrailRows {
+    
+    public enum Shape {
+        // A typical "what happened" projection
+        NARROW("eventtime", "eventname", "awsregion", "errorcode", "errormessage", "readonly"),
+        // SELECT * over the core CloudTrail columns
+        WIDE("eventtime", "eventsource", "eventname", "awsregion", "sourceipaddress", "useragent",
+             "useridentity", "requestparameters", "responseelements", "resources", "recipientaccountid",
+             "errorcode", "errormessage", "readonly", "additionaleventdata"),
+        // WIDE plus the unmasked JSON columns, so every payload goes through pattern masking
+        JSON_HEAVY(concat(WIDE.columns, "serviceeventdetails", "tlsdetails"));
+        
+        private final List<String> columns;
+        
+        Shape(String... columns) {
+            this(Arrays.asList(columns));
+        }
+        
+        Shape(List<String> columns) {
+            this.columns = columns;
+        }
+        
+        public List<String> columns() {
+            return columns;
+        }
+    }
+    
+    private static final String[] EVENTS = {
+        "ConsoleLogin", "AssumeRole", "GetObject", "PutObject", "DescribeInstances",
+        "CreateAccessKey", "AuthorizeSecurityGroupIngress", "GetCallerIdentity", "ListBuckets", "Decrypt"
+    };
+    private static final String[] SOURCES = {
+        "signin.amazonaws.com", "sts.amazonaws.com", "s3.amazonaws.com", "ec2.amazonaws.com",
+        "iam.amazonaws.com", "kms.amazonaws.com"
+    };
+    private static final String[] REGIONS = {"us-east-1", "us-west-2", "eu-west-1", "ap-southeast-2"};
+    private static final String[] ERRORS = {"AccessDenied", "UnauthorizedOperation", "ThrottlingException"};
+    
+    private final Random random;
+    private final double identifierDensity;
+    
+    private CloudTrailRows(long seed, double identifierDensity) {
+        this.random = new Random(seed);
+        this.identifierDensity = identifierDensity;
+    }
+    
+    // identifierDensity is the share of free-text values carrying IPs, account IDs, ARNs or access keys
+    public static QueryResultSet generate(Shape shape, int rowCount, double identifierDensity) {
+        return new QueryResultSet(shape.columns(), rows(shape, 0, rowCount, identifierDensity));
+    }
+    
+    // Rows [from, from + count) of an endless result; the same range always yields the same rows
+    public static List<String[]> rows(Shape shape, long from, int count, double identifierDensity) {
+        CloudTrailRows generator = new CloudTrailRows(42 + from, identifierDensity);
+        List<String[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(generator.row(shape.columns(), from + i));
+        }
+        return rows;
+    }
+    
+    // Athena result pages as returned by GetQueryResults, header row first
+    public static List<GetQueryResultsResponse> pages(QueryResultSet results, int pageSize) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(results.getColumns().toArray(new String[0]));
+        rows.addAll(results.getRows());
+        
+        List<GetQueryResultsResponse> pages = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += pageSize) {
+            String nextToken = i + pageSize < rows.size() ? String.valueOf(i + pageSize) : null;
+            pages.add(resultPage(results.getColumns(), rows.subList(i, Math.min(i + pageSize, rows.size())), nextToken));
+        }
+        return pages;
+    }
+    
+    public static GetQueryResultsResponse resultPage(List<String> columns, List<String[]> rows, String nextToken) {
+        List<ColumnInfo> columnInfo = columns.stream()
+                .map(column -> ColumnInfo.builder().name(column).type("varchar").build())
+                .collect(Collectors.toList());
+        
+        return GetQueryResultsResponse.builder()
+                .resultSet(ResultSet.builder()
+                        .resultSetMetadata(ResultSetMetadata.builder().columnInfo(columnInfo).build())
+                        .rows(rows.stream().map(CloudTrailRows::toRow).collect(Collectors.toList()))
+                        .build())
+                .nextToken(nextToken)
+                .build();
+    }
+    
+    private static Row toRow(String[] values) {
+        return Row.builder()
+                .data(Arrays.stream(values)
+                        .map(value -> Datum.builder().varCharValue(value).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+    
+    private String[] row(List<String> columns, long index) {
+        String[] row = new String[columns.size()];
+        boolean failed = random.nextInt(10) == 0;
+        for (int i = 0; i < row.length; i++) {
+            row[i] = value(columns.get(i), index, failed);
+        }
+        return row;
+    }
+    
+    private String value(String column, long index, boolean failed) {
+        switch (column) {
+            case "eventtime":
+                return String.format("2024-03-%02dT%02d:%02d:%02dZ",
+                    1 + index / 86400 % 28, index / 3600 % 24, index / 60 % 60, index % 60);
+            case "eventsource":
+                return pick(SOURCES);
+            case "eventname":
+                return pick(EVENTS);
+            case "awsregion":
+                return pick(REGIONS);
+            case "sourceipaddress":
+                return ip();
+            case "useragent":
+                return "aws-cli/2.15." + random.nextInt(40) + " Python/3.11.6 Linux/5.10 exe/x86_64"
+                    + (hasIdentifier() ? " via " + ip() : "");
+            case "useridentity":
+                return "{\"type\":\"AssumedRole\",\"principalId\":\"AROA" + upper(16) + ":session\",\"arn\":\""
+                    + arn() + "\",\"accountId\":\"" + account() + "\",\"accessKeyId\":\"ASIA" + upper(16) + "\"}";
+            case "requestparameters":
+            case "responseelements":
+            case "additionaleventdata":
+            case "serviceeventdetails":
+            case "tlsdetails":
+                return json(column.length() % 3 + 2);
+            case "resources":
+                return "[{\"accountId\":\"" + account() + "\",\"type\":\"AWS::S3::Object\",\"ARN\":\"" + arn() + "\"}]";
+            case "recipientaccountid":
+                return account();
+            case "errorcode":
+                return failed ? pick(ERRORS) : "";
+            case "errormessage":
+                return failed
+                    ? "User: " + (hasIdentifier() ? arn() : "session") + " is not authorized to perform this action"
+                    : "";
+            case "readonly":
+                return random.nextBoolean() ? "true" : "false";
+            default:
+                return "";
+        }
+    }
+    
+    // Nested payloads of roughly 150 characters per entry, like request/response elements
+    private String json(int entries) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"item").append(i).append("\":{\"name\":\"").append(lower(12))
+                .append("\",\"size\":").append(random.nextInt(100000))
+                .append(",\"tags\":[\"").append(lower(8)).append("\",\"").append(lower(8)).append("\"]");
+            if (hasIdentifier()) {
+                json.append(",\"source\":\"").append(ip()).append("\",\"owner\":\"").append(arn()).append('"');
+            }
+            if (random.nextInt(200) == 0) {
+                json.append(",\"key\":\"AKIA").append(upper(16)).append('"');
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+    
+    private boolean hasIdentifier() {
+        return random.nextDouble() < identifierDensity;
+    }
+    
+    private String ip() {
+        return (10 + random.nextInt(200)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+    }
+    
+    private String account() {
+        return String.valueOf(100000000000L + (long) (random.nextDouble() * 899999999999L));
+    }
+    
+    private String arn() {
+        return "arn:aws:iam::" + account() + ":role/" + lower(10);
+    }
+    
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+    
+    private String upper(int length) {
+        return characters(length, "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789");
+    }
+    
+    private String lower(int length) {
+        return characters(length, "abcdefghijklmnopqrstuvwxyz");
+    }
+    
+    private String characters(int length, String alphabet) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+    
+    private static List<String> concat(List<String> columns, String... more) {
+        List<String> all = new ArrayList<>(columns);
+        all.addAll(Arrays.asList(more));
+        return all;
+    }
+}
@@ -0,0 +1,34 @@
+package com.cloudaudit.standin;
+
+import software.amazon.awssdk.core.exception.AbortedException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Log-normal latencies, the usual shape of service response times: most calls land near
+// the median with a long tail reaching the p99
+final class LatencyDistribution {
+    
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_P99 = 2.3263;
+    
+    private final double mu;
+    private final double sigma;
+    
+    LatencyDistribution(long medianMillis, long p99Millis) {
+        this.mu = Math.log(Math.max(1, medianMillis));
+        this.sigma = p99Millis > medianMillis ? Math.log((double) p99Millis / Math.max(1, medianMillis)) / Z_P99 : 0;
+    }
+    
+    long sampleMillis() {
+        return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+    
+    void sleep() {
+        try {
+            Thread.sleep(sampleMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.builder().message("Interrupted during simulated latency").cause(e).build();
+        }
+    }
+}
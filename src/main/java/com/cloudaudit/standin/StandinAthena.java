@@ -0,0 +1,288 @@
+package com.cloudaudit.standin;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.athena.AthenaAsyncClient;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.athena.AthenaServiceClientConfiguration;
+import software.amazon.awssdk.services.athena.model.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// In-process Athena: every query succeeds after a sampled run time and returns synthetic
+// CloudTrail rows, paged like GetQueryResults with the header row first
+public class StandinAthena {
+    
+    // Rough bytes scanned per returned row, so bytes-scanned metrics have realistic magnitudes
+    private static final long BYTES_SCANNED_PER_ROW = 20 * 1024;
+    
+    private final CloudAuditConfig config;
+    private final StandinConfig standin;
+    private final CloudTrailRows.Shape shape;
+    private final LatencyDistribution apiLatency;
+    private final LatencyDistribution runLatency;
+    private final LatencyDistribution pageLatency;
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    
+    public StandinAthena(CloudAuditConfig config, StandinConfig standin) {
+        this.config = config;
+        this.standin = standin;
+        this.shape = CloudTrailRows.Shape.valueOf(standin.getResultShape());
+        this.apiLatency = new LatencyDistribution(standin.getApiMedianMillis(), standin.getApiP99Millis());
+        this.runLatency = new LatencyDistribution(standin.getAthenaMedianMillis(), standin.getAthenaP99Millis());
+        this.pageLatency = new LatencyDistribution(standin.getPageMedianMillis(), standin.getPageP99Millis());
+    }
+    
+    public AthenaClient syncClient() {
+        return new SyncClient();
+    }
+    
+    public AthenaAsyncClient asyncClient() {
+        return new AsyncClient();
+    }
+    
+    private StartQueryExecutionResponse start(StartQueryExecutionRequest request) {
+        // Executions are kept as long as the application keeps their results around
+        Instant expired = Instant.now().minus(Duration.ofMinutes(config.getResultRetentionMinutes()));
+        executions.values().removeIf(execution -> execution.submittedAt.isBefore(expired));
+        
+        String id = UUID.randomUUID().toString();
+        executions.put(id, new Execution(id, request.queryString(), runLatency.sampleMillis()));
+        return StartQueryExecutionResponse.builder().queryExecutionId(id).build();
+    }
+    
+    private BatchGetQueryExecutionResponse batchGet(BatchGetQueryExecutionRequest request) {
+        List<QueryExecution> found = new ArrayList<>();
+        List<UnprocessedQueryExecutionId> unprocessed = new ArrayList<>();
+        
+        for (String id : request.queryExecutionIds()) {
+            Execution execution = executions.get(id);
+            if (execution == null) {
+                unprocessed.add(UnprocessedQueryExecutionId.builder()
+                        .queryExecutionId(id)
+                        .errorCode("InvalidRequestException")
+                        .errorMessage("Unknown query execution")
+                        .build());
+            } else {
+                found.add(execution.toQueryExecution(standin.getResultRows()));
+            }
+        }
+        
+        return BatchGetQueryExecutionResponse.builder()
+                .queryExecutions(found)
+                .unprocessedQueryExecutionIds(unprocessed)
+                .build();
+    }
+    
+    private StopQueryExecutionResponse stop(StopQueryExecutionRequest request) {
+        Execution execution = executions.get(request.queryExecutionId());
+        if (execution != null) {
+            execution.cancel();
+        }
+        return StopQueryExecutionResponse.builder().build();
+    }
+    
+    private GetQueryResultsResponse results(GetQueryResultsRequest request) {
+        Execution execution = executions.get(request.queryExecutionId());
+        if (execution == null || !execution.isDone() || execution.isCancelled()) {
+            throw InvalidRequestException.builder()
+                    .message("Query has not yet finished: " + request.queryExecutionId())
+                    .build();
+        }
+        
+        // Tokens are plain row offsets; the first page spends one row on the header
+        long offset = request.nextToken() == null ? 0 : Long.parseLong(request.nextToken());
+        int pageSize = request.maxResults() == null ? 1000 : request.maxResults();
+        boolean firstPage = offset == 0;
+        long total = standin.getResultRows();
+        int rowCount = (int) Math.max(0, Math.min(pageSize - (firstPage ? 1 : 0), total - offset));
+        
+        List<String[]> rows = new ArrayList<>(rowCount + 1);
+        if (firstPage) {
+            rows.add(shape.columns().toArray(new String[0]));
+        }
+        rows.addAll(CloudTrailRows.rows(shape, offset, rowCount, standin.getIdentifierDensity()));
+        
+        long next = offset + rowCount;
+        return CloudTrailRows.resultPage(shape.columns(), rows, next < total ? String.valueOf(next) : null);
+    }
+    
+    private GetTableMetadataResponse tableMetadata(GetTableMetadataRequest request) {
+        List<Column> columns = shape.columns().stream()
+                .map(column -> Column.builder().name(column).type("string").build())
+                .collect(Collectors.toList());
+        // The usual CloudTrail layout, so partition predicates are added to generated SQL
+        List<Column> partitionKeys = Stream.of("region", "year", "month", "day")
+                .map(key -> Column.builder().name(key).type("string").build())
+                .collect(Collectors.toList());
+        
+        return GetTableMetadataResponse.builder()
+                .tableMetadata(TableMetadata.builder()
+                        .name(request.tableName())
+                        .columns(columns)
+                        .partitionKeys(partitionKeys)
+                        .build())
+                .build();
+    }
+    
+    private AthenaServiceClientConfiguration clientConfiguration() {
+        return AthenaServiceClientConfiguration.builder()
+                .region(Region.of(config.getAwsRegion()))
+                .build();
+    }
+    
+    private static <T> CompletableFuture<T> later(LatencyDistribution latency, Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call,
+            CompletableFuture.delayedExecutor(latency.sampleMillis(), TimeUnit.MILLISECONDS));
+    }
+    
+    private static final class Execution {
+        private final String id;
+        private final String query;
+        private final Instant submittedAt = Instant.now();
+        private final long runMillis;
+        private volatile Instant cancelledAt;
+        
+        private Execution(String id, String query, long runMillis) {
+            this.id = id;
+            this.query = query;
+            this.runMillis = runMillis;
+        }
+        
+        private boolean isDone() {
+            return !Instant.now().isBefore(submittedAt.plusMillis(runMillis));
+        }
+        
+        private boolean isCancelled() {
+            return cancelledAt != null;
+        }
+        
+        // Finished queries ignore the stop, as Athena does
+        private synchronized void cancel() {
+            if (cancelledAt == null && !isDone()) {
+                cancelledAt = Instant.now();
+            }
+        }
+        
+        private QueryExecution toQueryExecution(long resultRows) {
+            Instant cancelled = cancelledAt;
+            Instant now = cancelled != null ? cancelled : Instant.now();
+            boolean done = cancelled == null && isDone();
+            // A tenth of the run is spent queued, the rest executing
+            long elapsed = Math.min(runMillis, now.toEpochMilli() - submittedAt.toEpochMilli());
+            long queued = Math.min(elapsed, runMillis / 10);
+            // Data is scanned evenly over the execution, so running queries report partial progress
+            long scanned = resultRows * BYTES_SCANNED_PER_ROW * (elapsed - queued) / Math.max(1, runMillis - runMillis / 10);
+            QueryExecutionState state = cancelled != null ? QueryExecutionState.CANCELLED
+                : done ? QueryExecutionState.SUCCEEDED
+                : elapsed < runMillis / 10 ? QueryExecutionState.QUEUED : QueryExecutionState.RUNNING;
+            
+            return QueryExecution.builder()
+                    .queryExecutionId(id)
+                    .query(query)
+                    .status(QueryExecutionStatus.builder()
+                            .state(state)
+                            .stateChangeReason(cancelled != null ? "Query was cancelled" : null)
+                            .submissionDateTime(submittedAt)
+                            .completionDateTime(done ? submittedAt.plusMillis(runMillis) : cancelled)
+                            .build())
+                    .statistics(QueryExecutionStatistics.builder()
+                            .queryQueueTimeInMillis(queued)
+                            .engineExecutionTimeInMillis(elapsed - queued)
+                            .totalExecutionTimeInMillis(elapsed)
+                            .dataScannedInBytes(done ? resultRows * BYTES_SCANNED_PER_ROW : scanned)
+                            .build())
+                    .build();
+        }
+    }
+    
+    private final class SyncClient implements AthenaClient {
+        
+        @Override
+        public StartQueryExecutionResponse startQueryExecution(StartQueryExecutionRequest request) {
+            apiLatency.sleep();
+            return start(request);
+        }
+        
+        @Override
+        public BatchGetQueryExecutionResponse batchGetQueryExecution(BatchGetQueryExecutionRequest request) {
+            apiLatency.sleep();
+            return batchGet(request);
+        }
+        
+        @Override
+        public StopQueryExecutionResponse stopQueryExecution(StopQueryExecutionRequest request) {
+            apiLatency.sleep();
+            return stop(request);
+        }
+        
+        @Override
+        public GetQueryResultsResponse getQueryResults(GetQueryResultsRequest request) {
+            pageLatency.sleep();
+            return results(request);
+        }
+        
+        @Override
+        public GetTableMetadataResponse getTableMetadata(GetTableMetadataRequest request) {
+            apiLatency.sleep();
+            return tableMetadata(request);
+        }
+        
+        @Override
+        public AthenaServiceClientConfiguration serviceClientConfiguration() {
+            return clientConfiguration();
+        }
+        
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+    
+    private final class AsyncClient implements AthenaAsyncClient {
+        
+        @Override
+        public CompletableFuture<StartQueryExecutionResponse> startQueryExecution(StartQueryExecutionRequest request) {
+            return later(apiLatency, () -> start(request));
+        }
+        
+        @Override
+        public CompletableFuture<StopQueryExecutionResponse> stopQueryExecution(StopQueryExecutionRequest request) {
+            return later(apiLatency, () -> stop(request));
+        }
+        
+        @Override
+        public CompletableFuture<GetQueryResultsResponse> getQueryResults(GetQueryResultsRequest request) {
+            return later(pageLatency, () -> results(request));
+        }
+        
+        @Override
+        public AthenaServiceClientConfiguration serviceClientConfiguration() {
+            return clientConfiguration();
+        }
+        
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.cloudaudit.standin;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.services.athena.AthenaAsyncClient;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+
+// Takes the place of AwsConfig under the standin profile; nothing here talks to AWS
+@Slf4j
+@Configuration
+@Profile("standin")
+public class StandinAwsConfig {
+    
+    private final CloudAuditConfig config;
+    private final StandinConfig standin;
+    
+    public StandinAwsConfig(CloudAuditConfig config, StandinConfig standin) {
+        this.config = config;
+        this.standin = standin;
+    }
+    
+    @Bean
+    public StandinAthena standinAthena() {
+        log.warn("Using stand-in Athena: {} synthetic {} rows per query", 
+            standin.getResultRows(), standin.getResultShape());
+        return new StandinAthena(config, standin);
+    }
+    
+    @Bean(destroyMethod = "shutdown")
+    public StandinBedrock standinBedrock(ObjectMapper objectMapper) {
+        log.warn("Using stand-in Bedrock");
+        return new StandinBedrock(config, standin, objectMapper);
+    }
+    
+    @Bean
+    public AthenaClient athenaClient(StandinAthena standinAthena) {
+        return standinAthena.syncClient();
+    }
+    
+    @Bean
+    public AthenaAsyncClient athenaAsyncClient(StandinAthena standinAthena) {
+        return standinAthena.asyncClient();
+    }
+    
+    @Bean
+    public BedrockRuntimeAsyncClient bedrockAsyncClient(StandinBedrock standinBedrock) {
+        return standinBedrock.asyncClient();
+    }
+}
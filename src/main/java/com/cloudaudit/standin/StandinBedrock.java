@@ -0,0 +1,265 @@
+package com.cloudaudit.standin;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeServiceClientConfiguration;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamResponseHandler;
+import software.amazon.awssdk.services.bedrockruntime.model.PayloadPart;
+import software.amazon.awssdk.services.bedrockruntime.model.ResponseStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-process Bedrock speaking the Claude text-completion format: SQL prompts get a SELECT
+// statement followed by chatter (so early stopping has something to cut), description
+// prompts get filler prose, both generated at a fixed token rate after a sampled first-token delay
+public class StandinBedrock {
+    
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int TOKENS_PER_CHUNK = 3;
+    private static final String[] WORDS = {
+        "the", "results", "show", "activity", "from", "several", "principals", "across", "regions",
+        "with", "repeated", "calls", "to", "sensitive", "APIs", "which", "may", "indicate",
+        "misconfigured", "automation", "or", "credential", "misuse", "review", "recommended"
+    };
+    
+    private final CloudAuditConfig config;
+    private final StandinConfig standin;
+    private final ObjectMapper objectMapper;
+    private final LatencyDistribution firstTokenLatency;
+    private final ScheduledExecutorService scheduler;
+    
+    public StandinBedrock(CloudAuditConfig config, StandinConfig standin, ObjectMapper objectMapper) {
+        this.config = config;
+        this.standin = standin;
+        this.objectMapper = objectMapper;
+        this.firstTokenLatency = new LatencyDistribution(
+            standin.getFirstTokenMedianMillis(), standin.getFirstTokenP99Millis());
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "standin-bedrock-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    public BedrockRuntimeAsyncClient asyncClient() {
+        return new AsyncClient();
+    }
+    
+    private String complete(SdkBytes body) {
+        String prompt;
+        try {
+            prompt = objectMapper.readTree(body.asUtf8String()).path("prompt").asText();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed model request body", e);
+        }
+        
+        if (prompt.contains("Generate a SQL query")) {
+            // Distinct questions yield distinct SQL, as they would from the real model
+            String marker = Integer.toHexString(prompt.hashCode());
+            return " SELECT eventtime, eventsource, eventname, awsregion, sourceipaddress, errorcode"
+                + " FROM " + config.getTableName()
+                + " WHERE eventtime >= current_timestamp - interval '7' day"
+                + " AND errorcode IS NOT NULL AND useragent <> 'standin-" + marker + "'"
+                + " ORDER BY eventtime DESC LIMIT 1000;"
+                + "\n\nThis query returns the most recent failed calls together with their source.";
+        }
+        
+        StringBuilder text = new StringBuilder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (text.length() < standin.getDescriptionTokens() * CHARS_PER_TOKEN) {
+            text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.append('.').toString();
+    }
+    
+    private long generationMillis(String text) {
+        long tokens = (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        return tokens * 1000 / Math.max(1, standin.getTokensPerSecond());
+    }
+    
+    private InvokeModelResponse response(String text) {
+        try {
+            return InvokeModelResponse.builder()
+                    .contentType("application/json")
+                    .body(SdkBytes.fromUtf8String(objectMapper.writeValueAsString(
+                        Map.of("completion", text, "stop_reason", "stop_sequence"))))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize model response", e);
+        }
+    }
+    
+    private List<ResponseStream> chunks(String text) {
+        List<ResponseStream> chunks = new ArrayList<>();
+        int chunkChars = TOKENS_PER_CHUNK * CHARS_PER_TOKEN;
+        int tokens = (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        
+        for (int i = 0; i < text.length(); i += chunkChars) {
+            String completion = text.substring(i, Math.min(i + chunkChars, text.length()));
+            Map<String, Object> chunk = i + chunkChars < text.length()
+                ? Map.of("completion", completion)
+                : Map.of("completion", completion,
+                         "stop_reason", "stop_sequence",
+                         "amazon-bedrock-invocationMetrics", Map.of("outputTokenCount", tokens));
+            try {
+                chunks.add(PayloadPart.builder()
+                        .bytes(SdkBytes.fromUtf8String(objectMapper.writeValueAsString(chunk)))
+                        .build());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize model response chunk", e);
+            }
+        }
+        return chunks;
+    }
+    
+    private BedrockRuntimeServiceClientConfiguration clientConfiguration() {
+        return BedrockRuntimeServiceClientConfiguration.builder()
+                .region(Region.of(config.getAwsRegion()))
+                .build();
+    }
+    
+    // Emits one chunk per TOKENS_PER_CHUNK token intervals, honouring demand and cancellation
+    private final class ChunkPublisher implements Publisher<ResponseStream>, Subscription {
+        private final List<ResponseStream> chunks;
+        private final InvokeModelWithResponseStreamResponseHandler handler;
+        private final CompletableFuture<Void> call;
+        private final long intervalMillis;
+        private Subscriber<? super ResponseStream> subscriber;
+        private long demand;
+        private int next;
+        private boolean scheduled;
+        private boolean cancelled;
+        
+        private ChunkPublisher(List<ResponseStream> chunks,
+                               InvokeModelWithResponseStreamResponseHandler handler,
+                               CompletableFuture<Void> call) {
+            this.chunks = chunks;
+            this.handler = handler;
+            this.call = call;
+            this.intervalMillis = TOKENS_PER_CHUNK * 1000L / Math.max(1, standin.getTokensPerSecond());
+            call.whenComplete((done, error) -> cancel());
+        }
+        
+        @Override
+        public void subscribe(Subscriber<? super ResponseStream> subscriber) {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(this);
+        }
+        
+        @Override
+        public synchronized void request(long n) {
+            demand += n;
+            scheduleNext();
+        }
+        
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+        }
+        
+        private void scheduleNext() {
+            if (!scheduled && !cancelled && demand > 0) {
+                scheduled = true;
+                scheduler.schedule(this::emit, next == 0 ? 0 : intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        private void emit() {
+            ResponseStream chunk;
+            synchronized (this) {
+                scheduled = false;
+                if (cancelled) {
+                    return;
+                }
+                if (next == chunks.size()) {
+                    cancelled = true;
+                    chunk = null;
+                } else {
+                    demand--;
+                    chunk = chunks.get(next++);
+                }
+            }
+            
+            if (chunk == null) {
+                subscriber.onComplete();
+                handler.complete();
+                call.complete(null);
+                return;
+            }
+            
+            subscriber.onNext(chunk);
+            synchronized (this) {
+                scheduleNext();
+            }
+        }
+    }
+    
+    private final class AsyncClient implements BedrockRuntimeAsyncClient {
+        
+        @Override
+        public CompletableFuture<InvokeModelResponse> invokeModel(InvokeModelRequest request) {
+            String text = complete(request.body());
+            return CompletableFuture.supplyAsync(() -> response(text), CompletableFuture.delayedExecutor(
+                firstTokenLatency.sampleMillis() + generationMillis(text), TimeUnit.MILLISECONDS));
+        }
+        
+        @Override
+        public CompletableFuture<Void> invokeModelWithResponseStream(InvokeModelWithResponseStreamRequest request,
+                                                                     InvokeModelWithResponseStreamResponseHandler handler) {
+            List<ResponseStream> chunks = chunks(complete(request.body()));
+            CompletableFuture<Void> call = new CompletableFuture<>();
+            
+            scheduler.schedule(() -> {
+                if (call.isDone()) {
+                    return;
+                }
+                handler.responseReceived(InvokeModelWithResponseStreamResponse.builder()
+                        .contentType("application/json")
+                        .build());
+                handler.onEventStream(SdkPublisher.adapt(new ChunkPublisher(chunks, handler, call)));
+            }, firstTokenLatency.sampleMillis(), TimeUnit.MILLISECONDS);
+            
+            return call;
+        }
+        
+        @Override
+        public BedrockRuntimeServiceClientConfiguration serviceClientConfiguration() {
+            return clientConfiguration();
+        }
+        
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.cloudaudit.standin;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Settings for the stand-in AWS clients; latencies are log-normal with the given median and p99
+@Data
+@Configuration
+@Profile("standin")
+@ConfigurationProperties(prefix = "cloudaudit.standin")
+public class StandinConfig {
+    private long apiMedianMillis = 40;
+    private long apiP99Millis = 200;
+    private long athenaMedianMillis = 2000;
+    private long athenaP99Millis = 8000;
+    private long pageMedianMillis = 100;
+    private long pageP99Millis = 400;
+    private long firstTokenMedianMillis = 600;
+    private long firstTokenP99Millis = 2500;
+    private int tokensPerSecond = 60;
+    private int descriptionTokens = 250;
+    private int resultRows = 2000;
+    private String resultShape = "WIDE";
+    private double identifierDensity = 0.2;
+}
@@ -0,0 +1,168 @@
+package com.cloudaudit.controller;
+
+import com.cloudaudit.dto.QueryRequest;
+import com.cloudaudit.dto.QueryResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// End-to-end load test of POST /api/query against the stand-in Athena/Bedrock clients.
+// Reports latency percentiles, throughput, heap usage and per-stage timings from the
+// pipeline metrics. Generated-SQL and Athena result reuse are off so every request runs
+// the whole pipeline; latencies come from application-standin.yml and can be overridden.
+//
+// Run with: mvn test -Dtest=QueryLoadTest -Dloadtest=true
+//           [-Dloadtest.requests=500] [-Dloadtest.concurrency=100]
+//           [-Dcloudaudit.standin.athena-median-millis=500 ...]
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "cloudaudit.sql-cache-max-entries=0",
+    "cloudaudit.result-cache-ttl-minutes=0",
+    "management.metrics.distribution.percentiles.cloudaudit.pipeline.stage=0.5,0.99"
+})
+@ActiveProfiles("standin")
+class QueryLoadTest {
+
+    private static final int WARMUP_REQUESTS = 10;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Report end-to-end latency, throughput and heap usage under concurrent load")
+    void runLoad() throws Exception {
+        int requests = Integer.getInteger("loadtest.requests", 200);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 50);
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(Math.min(concurrency, 32));
+        HttpClient client = HttpClient.newBuilder().executor(clientExecutor).build();
+
+        // Stage timings below include the warm-up requests; latencies and heap figures do not
+        drive(client, WARMUP_REQUESTS, concurrency, "warm-up");
+        List<MemoryPoolMXBean> heapPools = heapPools();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+
+        long start = System.nanoTime();
+        List<Long> latencies = drive(client, requests, concurrency, "load");
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clientExecutor.shutdown();
+
+        Collections.sort(latencies);
+        System.out.printf("%n%d requests, concurrency %d: %.2fs, %.1f req/s%n",
+            requests, concurrency, seconds, requests / seconds);
+        System.out.printf("latency ms: p50 %d, p90 %d, p99 %d, max %d%n",
+            percentile(latencies, 0.50), percentile(latencies, 0.90),
+            percentile(latencies, 0.99), latencies.get(latencies.size() - 1));
+        System.out.printf("heap: peak %d MB, now %d MB; GC: %d collections, %d ms%n",
+            heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() >> 20,
+            ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20,
+            gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+
+        System.out.printf("%-16s %7s %9s %9s %9s%n", "stage", "count", "mean ms", "p50 ms", "p99 ms");
+        for (Timer timer : meterRegistry.find("cloudaudit.pipeline.stage").timers()) {
+            ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+            System.out.printf("%-16s %7d %9.1f %9.1f %9.1f%n",
+                timer.getId().getTag("stage"), timer.count(), timer.mean(TimeUnit.MILLISECONDS),
+                percentiles[0].value(TimeUnit.MILLISECONDS), percentiles[1].value(TimeUnit.MILLISECONDS));
+        }
+
+        assertEquals(requests, latencies.size());
+    }
+
+    private List<Long> drive(HttpClient client, int requests, int concurrency, String label) throws Exception {
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<CompletableFuture<Long>> calls = new ArrayList<>();
+
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            // Distinct questions, as the SQL cache would otherwise answer repeats without Bedrock
+            QueryRequest body = new QueryRequest("Show failed API calls for " + label + " user " + i);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/query"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+
+            long sent = System.nanoTime();
+            calls.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent);
+                    assertEquals(200, response.statusCode());
+                    assertNull(readResponse(response.body()).getError());
+                    return millis;
+                })
+                .whenComplete((millis, error) -> inFlight.release()));
+        }
+
+        List<Long> latencies = new ArrayList<>();
+        for (CompletableFuture<Long> call : calls) {
+            latencies.add(call.get());
+        }
+        return latencies;
+    }
+
+    private QueryResponse readResponse(byte[] body) {
+        try {
+            return objectMapper.readValue(body, QueryResponse.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable response", e);
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1));
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
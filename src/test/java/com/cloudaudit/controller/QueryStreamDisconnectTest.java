@@ -0,0 +1,66 @@
+package com.cloudaudit.controller;
+
+import com.cloudaudit.service.AthenaService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+// Drops the client of POST /api/query/stream while the stand-in Athena query is still running
+// and checks the server notices from its periodic progress events and stops the query.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "cloudaudit.sql-cache-max-entries=0",
+    "cloudaudit.result-cache-ttl-minutes=0",
+    "cloudaudit.standin.athena-median-millis=60000",
+    "cloudaudit.standin.athena-p99-millis=120000",
+    "cloudaudit.standin.first-token-median-millis=10",
+    "cloudaudit.standin.first-token-p99-millis=50"
+})
+@ActiveProfiles("standin")
+class QueryStreamDisconnectTest {
+
+    @LocalServerPort
+    private int port;
+
+    @SpyBean
+    private AthenaService athenaService;
+
+    @Test
+    @DisplayName("Should cancel the Athena query when the client disconnects mid-query")
+    void testCancelsQueryWhenClientDisconnects() throws Exception {
+        byte[] body = "{\"userQuery\": \"Show failed console logins in the last day\"}".getBytes(StandardCharsets.UTF_8);
+
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /api/query/stream HTTP/1.1\r\n"
+                    + "Host: localhost:" + port + "\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Accept: text/event-stream\r\n"
+                    + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null && !line.equals("event:athena_running")) {
+                assertFalse(line.startsWith("event:results"), "Query finished before the client could drop");
+            }
+            assertNotNull(line, "Stream ended before Athena started");
+        }
+
+        verify(athenaService, timeout(15000)).cancelQuery(anyString());
+    }
+}
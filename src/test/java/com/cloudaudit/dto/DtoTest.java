@@ -3,6 +3,8 @@ package com.cloudaudit.dto;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DtoTest {
@@ -24,23 +26,35 @@ class DtoTest {
         assertEquals("Test query", request.getUserQuery());
     }
 
+    @Test
+    @DisplayName("QueryRequest should include a description unless asked not to")
+    void testQueryRequestIncludeDescription() {
+        assertTrue(new QueryRequest().isIncludeDescription());
+        assertTrue(new QueryRequest("Test query").isIncludeDescription());
+        assertFalse(new QueryRequest("Test query", false).isIncludeDescription());
+    }
+
     @Test
     @DisplayName("QueryResponse should set and get all fields")
     void testQueryResponse() {
         QueryResponse response = new QueryResponse();
         
         response.setSqlQuery("SELECT *");
-        response.setResults("Results here");
+        response.setColumns(List.of("eventname"));
+        response.setRows(List.<String[]>of(new String[]{"ConsoleLogin"}));
         response.setDescription("Description");
         response.setPartial(true);
-        response.setCsvData("csv,data");
+        response.setQueryExecutionId("exec-1");
+        response.setCsvDownloadUrl("/api/results/exec-1/csv");
         response.setError("Error message");
         
         assertEquals("SELECT *", response.getSqlQuery());
-        assertEquals("Results here", response.getResults());
+        assertEquals(List.of("eventname"), response.getColumns());
+        assertArrayEquals(new String[]{"ConsoleLogin"}, response.getRows().get(0));
         assertEquals("Description", response.getDescription());
         assertTrue(response.isPartial());
-        assertEquals("csv,data", response.getCsvData());
+        assertEquals("exec-1", response.getQueryExecutionId());
+        assertEquals("/api/results/exec-1/csv", response.getCsvDownloadUrl());
         assertEquals("Error message", response.getError());
     }
 }
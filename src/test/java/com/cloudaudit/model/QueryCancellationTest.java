@@ -0,0 +1,54 @@
+package com.cloudaudit.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCancellationTest {
+
+    @Test
+    @DisplayName("Should cancel tracked futures and run actions once")
+    void testCancelRunsActionsOnce() {
+        QueryCancellation cancellation = new QueryCancellation();
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<String> call = cancellation.track(new CompletableFuture<>());
+        cancellation.onCancel(runs::incrementAndGet);
+
+        cancellation.cancel();
+        cancellation.cancel();
+
+        assertTrue(cancellation.isCancelled());
+        assertTrue(call.isCancelled());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    @DisplayName("Should run actions registered after cancellation straight away")
+    void testLateRegistration() {
+        QueryCancellation cancellation = new QueryCancellation();
+        cancellation.cancel();
+
+        CompletableFuture<String> call = cancellation.track(new CompletableFuture<>());
+
+        assertTrue(call.isCancelled());
+    }
+
+    @Test
+    @DisplayName("Should keep running actions when one of them fails")
+    void testFailingActionDoesNotStopOthers() {
+        QueryCancellation cancellation = new QueryCancellation();
+        AtomicInteger runs = new AtomicInteger();
+        cancellation.onCancel(() -> {
+            throw new IllegalStateException("stop failed");
+        });
+        cancellation.onCancel(runs::incrementAndGet);
+
+        cancellation.cancel();
+
+        assertEquals(1, runs.get());
+    }
+}
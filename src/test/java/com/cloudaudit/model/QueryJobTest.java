@@ -0,0 +1,131 @@
+package com.cloudaudit.model;
+
+import com.cloudaudit.dto.QueryJobStatus;
+import com.cloudaudit.dto.QueryProgressEvent;
+import com.cloudaudit.dto.QueryResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryJobTest {
+
+    @Test
+    @DisplayName("Should replay past events to late subscribers")
+    void testReplayToLateSubscribers() {
+        QueryJob job = new QueryJob("job-1");
+        job.publish(new QueryProgressEvent(QueryStage.SQL_GENERATED, null));
+
+        List<QueryStage> seen = new ArrayList<>();
+        job.subscribe(event -> seen.add(event.getStage()));
+        job.publish(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, 1024L));
+
+        assertEquals(List.of(QueryStage.QUEUED, QueryStage.SQL_GENERATED, QueryStage.ATHENA_RUNNING), seen);
+        assertEquals(1024L, job.toStatus().getBytesScanned());
+    }
+
+    @Test
+    @DisplayName("Should replay repeated progress for one stage as a single event")
+    void testCollapsesRepeatedProgress() {
+        QueryJob job = new QueryJob("job-1");
+        job.publish(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, null));
+        for (long bytes = 1; bytes <= 300; bytes++) {
+            job.publish(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, bytes * 1024));
+        }
+        job.publish(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, null));
+
+        List<QueryProgressEvent> seen = new ArrayList<>();
+        job.subscribe(seen::add);
+
+        assertEquals(2, seen.size());
+        assertEquals(QueryStage.QUEUED, seen.get(0).getStage());
+        assertEquals(QueryStage.ATHENA_RUNNING, seen.get(1).getStage());
+        assertEquals(300 * 1024L, seen.get(1).getBytesScanned());
+    }
+
+    @Test
+    @DisplayName("Should ignore events after the job has finished")
+    void testTerminalStageIsFinal() {
+        QueryJob job = new QueryJob("job-1");
+        QueryResponse response = new QueryResponse();
+        response.setDescription("done");
+
+        job.complete(response);
+        job.publish(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, null));
+        job.fail("late failure");
+
+        QueryJobStatus status = job.toStatus();
+        assertEquals(QueryStage.COMPLETED, status.getStage());
+        assertSame(response, status.getResult());
+        assertNull(status.getError());
+    }
+
+    @Test
+    @DisplayName("Should stop delivering to unsubscribed listeners")
+    void testUnsubscribe() {
+        QueryJob job = new QueryJob("job-1");
+        List<QueryProgressEvent> seen = new ArrayList<>();
+        Consumer<QueryProgressEvent> subscriber = seen::add;
+
+        job.subscribe(subscriber);
+        job.unsubscribe(subscriber);
+        job.publish(new QueryProgressEvent(QueryStage.SQL_GENERATED, null));
+
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    @DisplayName("Should not block publishers or readers on a slow subscriber")
+    void testSlowSubscriberDoesNotBlockPublisher() throws Exception {
+        ExecutorService delivery = Executors.newCachedThreadPool();
+        try {
+            QueryJob job = new QueryJob("job-1", delivery);
+            CountDownLatch release = new CountDownLatch(1);
+            List<QueryStage> slow = new CopyOnWriteArrayList<>();
+            List<QueryStage> fast = new CopyOnWriteArrayList<>();
+            job.subscribe(event -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                slow.add(event.getStage());
+            });
+            job.subscribe(event -> fast.add(event.getStage()));
+
+            job.publish(new QueryProgressEvent(QueryStage.SQL_GENERATED, null));
+            job.publish(new QueryProgressEvent(QueryStage.ATHENA_RUNNING, null));
+            job.complete(new QueryResponse());
+
+            assertEquals(QueryStage.COMPLETED, job.toStatus().getStage());
+            awaitSize(fast, 4);
+            assertTrue(slow.isEmpty());
+
+            release.countDown();
+            awaitSize(slow, 4);
+            List<QueryStage> expected = List.of(
+                QueryStage.QUEUED, QueryStage.SQL_GENERATED, QueryStage.ATHENA_RUNNING, QueryStage.COMPLETED);
+            assertEquals(expected, slow);
+            assertEquals(expected, fast);
+        } finally {
+            delivery.shutdownNow();
+        }
+    }
+
+    private void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(size, list.size());
+    }
+}
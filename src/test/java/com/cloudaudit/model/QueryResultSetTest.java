@@ -0,0 +1,48 @@
+package com.cloudaudit.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryResultSetTest {
+
+    @Test
+    @DisplayName("Should share one instance for repeated low-cardinality values")
+    void testDictionaryEncoding() {
+        QueryResultSet results = QueryResultSet.builder(List.of("eventname", "errormessage"))
+                .addRow(new String[]{new String("ConsoleLogin"), new String("denied")})
+                .addRow(new String[]{new String("ConsoleLogin"), new String("denied")})
+                .build();
+
+        assertSame(results.getRow(0)[0], results.getRow(1)[0]);
+        assertNotSame(results.getRow(0)[1], results.getRow(1)[1]);
+    }
+
+    @Test
+    @DisplayName("Should look up values by column name")
+    void testGetValue() {
+        QueryResultSet results = QueryResultSet.builder(List.of("eventname", "awsregion"))
+                .addRow(new String[]{"DeleteBucket", "us-east-1"})
+                .build();
+
+        assertEquals("us-east-1", results.getValue(0, "awsregion"));
+        assertThrows(IllegalArgumentException.class, () -> results.getValue(0, "missing"));
+    }
+
+    @Test
+    @DisplayName("Should limit rows with head")
+    void testHead() {
+        QueryResultSet results = QueryResultSet.builder(List.of("eventname"))
+                .addRow(new String[]{"a"})
+                .addRow(new String[]{"b"})
+                .addRow(new String[]{"c"})
+                .build();
+
+        assertEquals(2, results.head(2).size());
+        assertSame(results, results.head(10));
+        assertEquals(results.getColumns(), results.head(1).getColumns());
+    }
+}
@@ -0,0 +1,67 @@
+package com.cloudaudit.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLimiterTest {
+
+    @Test
+    @DisplayName("Should start waiting calls only as earlier calls complete")
+    void testBoundsOutstandingCalls() {
+        AsyncLimiter limiter = new AsyncLimiter(2);
+        List<CompletableFuture<String>> backends = List.of(
+            new CompletableFuture<>(), new CompletableFuture<>(), new CompletableFuture<>());
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> first = limiter.submit(() -> backends.get(started.getAndIncrement()));
+        limiter.submit(() -> backends.get(started.getAndIncrement()));
+        CompletableFuture<String> third = limiter.submit(() -> backends.get(started.getAndIncrement()));
+
+        assertEquals(2, started.get());
+        assertEquals(1, limiter.getWaitingCount());
+
+        backends.get(0).complete("first");
+        assertEquals("first", first.join());
+        assertEquals(3, started.get());
+
+        backends.get(2).complete("third");
+        assertEquals("third", third.join());
+    }
+
+    @Test
+    @DisplayName("Should skip calls cancelled while waiting")
+    void testSkipsCancelledWaiters() {
+        AsyncLimiter limiter = new AsyncLimiter(1);
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        limiter.submit(() -> backend);
+        CompletableFuture<String> waiting = limiter.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("never");
+        });
+        waiting.cancel(true);
+        backend.complete("done");
+
+        assertEquals(0, started.get());
+        assertEquals("later", limiter.submit(() -> CompletableFuture.completedFuture("later")).join());
+    }
+
+    @Test
+    @DisplayName("Should cancel the running call when its future is cancelled")
+    void testCancelsRunningCall() {
+        AsyncLimiter limiter = new AsyncLimiter(1);
+        CompletableFuture<String> backend = new CompletableFuture<>();
+
+        limiter.submit(() -> backend).cancel(true);
+
+        assertTrue(backend.isCancelled());
+        assertEquals("next", limiter.submit(() -> CompletableFuture.completedFuture("next")).join());
+    }
+}
@@ -0,0 +1,73 @@
+package com.cloudaudit.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncRetryTest {
+
+    @Test
+    @DisplayName("Should retry retryable failures until the call succeeds")
+    void testRetriesUntilSuccess() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = AsyncRetry.withRetry(() -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new IllegalStateException("throttled"))
+                : CompletableFuture.completedFuture("ok"),
+            IllegalStateException.class::isInstance, 3, 1, 2);
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Should fail immediately on non-retryable errors")
+    void testNonRetryableFailure() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = AsyncRetry.withRetry(() -> {
+                attempts.incrementAndGet();
+                return CompletableFuture.failedFuture(new IllegalArgumentException("bad request"));
+            },
+            IllegalStateException.class::isInstance, 3, 1, 2);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Should give up after the maximum number of attempts")
+    void testGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = AsyncRetry.withRetry(() -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("throttled");
+            },
+            IllegalStateException.class::isInstance, 3, 1, 2);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Should report each retry but not the final failure")
+    void testReportsRetries() {
+        AtomicInteger retries = new AtomicInteger();
+
+        CompletableFuture<String> result = AsyncRetry.withRetry(
+            () -> CompletableFuture.failedFuture(new IllegalStateException("throttled")),
+            IllegalStateException.class::isInstance, 3, 1, 2, retries::incrementAndGet);
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals(2, retries.get());
+    }
+}
@@ -0,0 +1,106 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AthenaAdmissionControlTest {
+
+    private CloudAuditConfig config;
+    private AthenaAdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        config = new CloudAuditConfig();
+        config.setAthenaMaxConcurrentQueries(2);
+        config.setAthenaAdmissionQueueCapacity(10);
+        admissionControl = new AthenaAdmissionControl(config, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Should queue queries beyond the concurrency limit until a permit is released")
+    void testLimitsConcurrency() throws Exception {
+        AthenaAdmissionControl.Permit first = admissionControl.acquire("alice").get();
+        admissionControl.acquire("alice").get();
+        CompletableFuture<AthenaAdmissionControl.Permit> third = admissionControl.acquire("alice");
+
+        assertFalse(third.isDone());
+        assertEquals(1, admissionControl.getQueuedCount());
+
+        first.release();
+        first.release();
+
+        assertTrue(third.isDone());
+        assertEquals(2, admissionControl.getRunningCount());
+        assertEquals(0, admissionControl.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("Should admit waiting callers round-robin")
+    void testAdmitsCallersFairly() throws Exception {
+        config.setAthenaMaxConcurrentQueries(1);
+        AthenaAdmissionControl.Permit running = admissionControl.acquire("alice").get();
+        CompletableFuture<AthenaAdmissionControl.Permit> alice1 = admissionControl.acquire("alice");
+        CompletableFuture<AthenaAdmissionControl.Permit> alice2 = admissionControl.acquire("alice");
+        CompletableFuture<AthenaAdmissionControl.Permit> bob = admissionControl.acquire("bob");
+
+        running.release();
+        assertTrue(alice1.isDone());
+
+        alice1.get().release();
+        assertTrue(bob.isDone());
+        assertFalse(alice2.isDone());
+
+        bob.get().release();
+        assertTrue(alice2.isDone());
+    }
+
+    @Test
+    @DisplayName("Should reject queries once the queue is full")
+    void testRejectsWhenQueueIsFull() throws Exception {
+        config.setAthenaAdmissionQueueCapacity(1);
+        admissionControl.acquire("alice").get();
+        admissionControl.acquire("alice").get();
+        admissionControl.acquire("alice");
+
+        CompletableFuture<AthenaAdmissionControl.Permit> rejected = admissionControl.acquire("bob");
+
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(QueryLimitExceededException.class, e.getCause());
+    }
+
+    @Test
+    @DisplayName("Should give up waiting after the admission timeout and skip abandoned waiters")
+    void testTimesOutWaiters() throws Exception {
+        config.setAthenaMaxConcurrentQueries(1);
+        config.setAthenaAdmissionTimeoutSeconds(0);
+        AthenaAdmissionControl.Permit running = admissionControl.acquire("alice").get();
+        CompletableFuture<AthenaAdmissionControl.Permit> waiter = admissionControl.acquire("bob");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(QueryLimitExceededException.class, e.getCause());
+
+        running.release();
+        assertEquals(0, admissionControl.getRunningCount());
+        assertEquals(0, admissionControl.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("Should admit everything when admission control is disabled")
+    void testDisabled() {
+        config.setAthenaMaxConcurrentQueries(0);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(admissionControl.acquire("alice").isDone());
+        }
+        assertEquals(0, admissionControl.getRunningCount());
+    }
+}
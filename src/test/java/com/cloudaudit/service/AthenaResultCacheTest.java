@@ -0,0 +1,108 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AthenaResultCacheTest {
+
+    private CloudAuditConfig config;
+    private AthenaResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        config = new CloudAuditConfig();
+        cache = new AthenaResultCache(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should normalize case and whitespace but keep string literals intact")
+    void testNormalizeSql() {
+        assertEquals(
+            "select eventname from t where errorcode = 'AccessDenied  X'",
+            AthenaResultCache.normalizeSql("SELECT  eventName\n FROM t WHERE errorCode = 'AccessDenied  X';")
+        );
+    }
+
+    @Test
+    @DisplayName("Should reuse the execution of an identical query until it is invalidated")
+    void testExecutionReuse() {
+        cache.recordExecution("SELECT * FROM t;", "exec-1");
+
+        assertEquals(Optional.of("exec-1"), cache.findExecution("select *   from T"));
+        assertTrue(cache.findExecution("SELECT * FROM t WHERE x = 1;").isEmpty());
+
+        cache.invalidateExecution("exec-1");
+        assertTrue(cache.findExecution("SELECT * FROM t;").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used results beyond the byte budget")
+    void testByteBudget() {
+        QueryResultSet results = resultSet(10);
+        config.setResultCacheMaxBytes(AthenaResultCache.estimateBytes(results) * 2);
+
+        cache.putResults("exec-1", results);
+        cache.putResults("exec-2", results);
+        cache.getResults("exec-1");
+        cache.putResults("exec-3", results);
+
+        assertTrue(cache.getResults("exec-1").isPresent());
+        assertTrue(cache.getResults("exec-2").isEmpty());
+        assertTrue(cache.getResults("exec-3").isPresent());
+    }
+
+    @Test
+    @DisplayName("Should serve evicted results from the spill directory")
+    void testSpillToDisk(@TempDir Path spillDirectory) {
+        QueryResultSet results = resultSet(10);
+        config.setResultCacheMaxBytes(AthenaResultCache.estimateBytes(results));
+        config.setResultCacheSpillDirectory(spillDirectory.toString());
+        cache = new AthenaResultCache(config);
+
+        cache.putResults("exec-1", results);
+        cache.putResults("exec-2", results);
+
+        Optional<QueryResultSet> spilled = cache.getResults("exec-1");
+        assertTrue(spilled.isPresent());
+        assertEquals(results.getColumns(), spilled.get().getColumns());
+        assertEquals(10, spilled.get().size());
+        assertArrayEquals(results.getRow(3), spilled.get().getRow(3));
+        assertNull(spilled.get().getRow(0)[2]);
+    }
+
+    @Test
+    @DisplayName("Should bypass the cache when reuse is disabled")
+    void testDisabled() {
+        config.setResultCacheTtlMinutes(0);
+
+        cache.recordExecution("SELECT 1;", "exec-1");
+        cache.putResults("exec-1", resultSet(1));
+
+        assertTrue(cache.findExecution("SELECT 1;").isEmpty());
+        assertTrue(cache.getResults("exec-1").isEmpty());
+    }
+
+    private QueryResultSet resultSet(int rows) {
+        QueryResultSet.Builder builder = QueryResultSet.builder(Arrays.asList("eventname", "sourceipaddress", "errorcode"));
+        for (int i = 0; i < rows; i++) {
+            builder.addRow(new String[]{"ConsoleLogin", "10.0.0." + i, i == 0 ? null : "Failed\tLogin"});
+        }
+        return builder.build();
+    }
+}
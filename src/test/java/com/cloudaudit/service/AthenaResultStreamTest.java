@@ -0,0 +1,123 @@
+package com.cloudaudit.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.athena.model.ColumnInfo;
+import software.amazon.awssdk.services.athena.model.Datum;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+import software.amazon.awssdk.services.athena.model.ResultSet;
+import software.amazon.awssdk.services.athena.model.ResultSetMetadata;
+import software.amazon.awssdk.services.athena.model.Row;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AthenaResultStreamTest {
+
+    @Test
+    @DisplayName("Should skip the header row on the first page only")
+    void testSkipsHeaderOnFirstPageOnly() {
+        AthenaResultStream stream = new AthenaResultStream(QueryExecution.builder().build(), List.of(
+                page(row("eventname", "sourceipaddress"), row("ConsoleLogin", "10.0.0.1")),
+                page(row("eventname", "sourceipaddress"), row("AssumeRole", "10.0.0.2"))).iterator(),
+            Runnable::run);
+
+        assertEquals(List.of("eventname", "sourceipaddress"), stream.getColumns());
+        assertEquals(List.of("ConsoleLogin", "eventname", "AssumeRole"), eventNames(stream));
+    }
+
+    @Test
+    @DisplayName("Should iterate rows across all pages in order")
+    void testIteratesAcrossPages() {
+        AthenaResultStream stream = new AthenaResultStream(QueryExecution.builder().build(), List.of(
+                page(row("eventname", "sourceipaddress"), row("a", "1"), row("b", "2")),
+                page(),
+                page(row("c", "3"))).iterator(),
+            Runnable::run);
+
+        assertEquals(List.of("a", "b", "c"), eventNames(stream));
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    @DisplayName("Should yield no columns or rows when there are no pages")
+    void testEmptyResults() {
+        AthenaResultStream stream = new AthenaResultStream(
+            QueryExecution.builder().build(), Collections.emptyIterator(), Runnable::run);
+
+        assertTrue(stream.getColumns().isEmpty());
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    @DisplayName("Should yield no rows when the first page holds only the header")
+    void testHeaderOnly() {
+        AthenaResultStream stream = new AthenaResultStream(QueryExecution.builder().build(),
+            List.of(page(row("eventname", "sourceipaddress"))).iterator(), Runnable::run);
+
+        assertEquals(2, stream.getColumns().size());
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    @DisplayName("Should cancel the prefetch when closed")
+    void testCloseCancelsPrefetch() {
+        AtomicInteger fetched = new AtomicInteger();
+        Iterator<GetQueryResultsResponse> pages = new Iterator<>() {
+            private final Iterator<GetQueryResultsResponse> delegate = List.of(
+                page(row("eventname", "sourceipaddress"), row("a", "1")),
+                page(row("b", "2"))).iterator();
+
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public GetQueryResultsResponse next() {
+                fetched.incrementAndGet();
+                return delegate.next();
+            }
+        };
+        // Holds the prefetch task so it only runs after close
+        List<Runnable> scheduled = new ArrayList<>();
+
+        AthenaResultStream stream = new AthenaResultStream(QueryExecution.builder().build(), pages, scheduled::add);
+        stream.close();
+        scheduled.forEach(Runnable::run);
+
+        assertEquals(1, fetched.get());
+        assertFalse(stream.hasNext());
+    }
+
+    private static List<String> eventNames(AthenaResultStream stream) {
+        return stream.stream().map(values -> values[0]).collect(Collectors.toList());
+    }
+
+    private static GetQueryResultsResponse page(Row... rows) {
+        return GetQueryResultsResponse.builder()
+                .resultSet(ResultSet.builder()
+                        .resultSetMetadata(ResultSetMetadata.builder()
+                                .columnInfo(ColumnInfo.builder().name("eventname").build(),
+                                            ColumnInfo.builder().name("sourceipaddress").build())
+                                .build())
+                        .rows(rows)
+                        .build())
+                .build();
+    }
+
+    private static Row row(String... values) {
+        return Row.builder()
+                .data(Arrays.stream(values).map(value -> Datum.builder().varCharValue(value).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
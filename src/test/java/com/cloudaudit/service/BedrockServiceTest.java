@@ -0,0 +1,77 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.AccessDeniedException;
+import software.amazon.awssdk.services.bedrockruntime.model.BedrockRuntimeException;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+import software.amazon.awssdk.services.bedrockruntime.model.ValidationException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BedrockServiceTest {
+
+    private SimpleMeterRegistry registry;
+    private BedrockRuntimeAsyncClient client;
+    private BedrockService bedrockService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        client = mock(BedrockRuntimeAsyncClient.class);
+        bedrockService = new BedrockService(client, new CloudAuditConfig(), new ObjectMapper(),
+            new PipelineMetrics(registry));
+    }
+
+    @Test
+    @DisplayName("Should not retry a rejected request")
+    void testDoesNotRetryRejectedRequest() {
+        when(client.invokeModel(any(InvokeModelRequest.class))).thenReturn(CompletableFuture.failedFuture(
+            ValidationException.builder().statusCode(400).message("Malformed input request").build()));
+
+        CompletableFuture<String> result = bedrockService.invokeClaudeAsync("prompt");
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        verify(client, times(1)).invokeModel(any(InvokeModelRequest.class));
+        assertNull(registry.find("cloudaudit.retries").counter());
+    }
+
+    @Test
+    @DisplayName("Should not count a cancelled call as a retry")
+    void testCancellationIsNotRetried() {
+        CompletableFuture<InvokeModelResponse> pending = new CompletableFuture<>();
+        when(client.invokeModel(any(InvokeModelRequest.class))).thenReturn(pending);
+
+        bedrockService.invokeClaudeAsync("prompt").cancel(true);
+
+        assertTrue(pending.isCancelled());
+        verify(client, times(1)).invokeModel(any(InvokeModelRequest.class));
+        assertNull(registry.find("cloudaudit.retries").counter());
+    }
+
+    @Test
+    @DisplayName("Should retry throttling and server errors only")
+    void testRetryableErrors() {
+        assertTrue(BedrockService.isRetryable(ThrottlingException.builder().statusCode(429).build()));
+        assertTrue(BedrockService.isRetryable(new RuntimeException("Failed to invoke LLM",
+            BedrockRuntimeException.builder().statusCode(503).build())));
+        assertFalse(BedrockService.isRetryable(new RuntimeException("Failed to invoke LLM",
+            AccessDeniedException.builder().statusCode(403).build())));
+        assertFalse(BedrockService.isRetryable(new CompletionException(new CancellationException())));
+    }
+}
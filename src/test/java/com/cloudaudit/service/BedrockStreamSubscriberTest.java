@@ -0,0 +1,105 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.model.StreamedCompletion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.bedrockruntime.model.PayloadPart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BedrockStreamSubscriberTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> chunks = new ArrayList<>();
+    private boolean cancelled;
+
+    @BeforeEach
+    void setUp() {
+        chunks.clear();
+        cancelled = false;
+    }
+
+    @Test
+    @DisplayName("Should stop the stream once the SQL statement is complete")
+    void testStopsAtStatementEnd() {
+        BedrockStreamSubscriber subscriber = subscribe();
+
+        subscriber.onNext(chunk("{\"completion\": \" SELECT eventname FROM t\"}"));
+        assertFalse(subscriber.getResult().isDone());
+        subscriber.onNext(chunk("{\"completion\": \" WHERE errorcode = 'a;b';\"}"));
+        subscriber.onNext(chunk("{\"completion\": \"\\n\\nThis query returns\"}"));
+
+        StreamedCompletion completion = subscriber.getResult().join();
+        assertTrue(cancelled);
+        assertTrue(completion.isStoppedEarly());
+        assertEquals("SELECT eventname FROM t WHERE errorcode = 'a;b';", completion.getText());
+        assertEquals(2, chunks.size());
+        assertNotNull(completion.getTimeToFirstTokenMillis());
+    }
+
+    @Test
+    @DisplayName("Should use Bedrock's token count when the stream completes")
+    void testReportedTokenCount() {
+        BedrockStreamSubscriber subscriber = new BedrockStreamSubscriber(objectMapper, chunks::add, text -> false);
+        subscriber.onSubscribe(subscription());
+
+        subscriber.onNext(chunk("{\"completion\": \"Two failed logins.\"}"));
+        subscriber.onNext(chunk("{\"completion\": \"\", \"stop_reason\": \"stop_sequence\", "
+            + "\"amazon-bedrock-invocationMetrics\": {\"outputTokenCount\": 5}}"));
+        subscriber.onComplete();
+
+        StreamedCompletion completion = subscriber.getResult().join();
+        assertFalse(completion.isStoppedEarly());
+        assertEquals("Two failed logins.", completion.getText());
+        assertEquals(5, completion.getOutputTokens());
+    }
+
+    @Test
+    @DisplayName("Should fail the result on stream errors")
+    void testStreamError() {
+        BedrockStreamSubscriber subscriber = subscribe();
+
+        subscriber.onError(new IllegalStateException("throttled"));
+
+        assertTrue(subscriber.getResult().isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Should only treat semicolons outside string literals as statement ends")
+    void testIsCompleteStatement() {
+        assertFalse(SqlQueryService.isCompleteStatement("Here is the query: SELECT * FROM t WHERE x = 'a;"));
+        assertTrue(SqlQueryService.isCompleteStatement("SELECT * FROM t WHERE x = 'a;b';"));
+        assertFalse(SqlQueryService.isCompleteStatement("Sure;"));
+    }
+
+    private BedrockStreamSubscriber subscribe() {
+        BedrockStreamSubscriber subscriber =
+            new BedrockStreamSubscriber(objectMapper, chunks::add, SqlQueryService::isCompleteStatement);
+        subscriber.onSubscribe(subscription());
+        return subscriber;
+    }
+
+    private Subscription subscription() {
+        return new Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+        };
+    }
+
+    private PayloadPart chunk(String json) {
+        return PayloadPart.builder().bytes(SdkBytes.fromUtf8String(json)).build();
+    }
+}
@@ -1,5 +1,9 @@
 package com.cloudaudit.service;
 
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -10,56 +14,57 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class DataMaskingServiceTest {
 
+    private CloudAuditConfig config;
     private DataMaskingService dataMaskingService;
 
     @BeforeEach
     void setUp() {
-        dataMaskingService = new DataMaskingService();
+        config = new CloudAuditConfig();
+        dataMaskingService = new DataMaskingService(config, new PipelineMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataMaskingService.shutdown();
     }
 
     @Test
     @DisplayName("Should mask sensitive column values")
     void testMaskSensitiveColumns() {
-        List<Map<String, String>> data = new ArrayList<>();
-        Map<String, String> row = new HashMap<>();
+        Map<String, String> row = new LinkedHashMap<>();
         row.put("eventname", "ConsoleLogin");
         row.put("sourceipaddress", "192.168.1.100");
-        data.add(row);
 
-        List<Map<String, String>> result = dataMaskingService.maskSensitiveData(data);
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
 
-        assertEquals("19****00", result.get(0).get("sourceipaddress"));
-        assertEquals("ConsoleLogin", result.get(0).get("eventname"));
+        assertEquals("19****00", result.getValue(0, "sourceipaddress"));
+        assertEquals("ConsoleLogin", result.getValue(0, "eventname"));
     }
 
     @Test
     @DisplayName("Should mask IP addresses in non-sensitive columns")
     void testMaskIpAddressesInNonSensitiveColumns() {
-        List<Map<String, String>> data = new ArrayList<>();
-        Map<String, String> row = new HashMap<>();
+        Map<String, String> row = new LinkedHashMap<>();
         row.put("eventname", "Login from 192.168.1.100");
         row.put("errormessage", "Failed login from 10.0.0.1");
-        data.add(row);
 
-        List<Map<String, String>> result = dataMaskingService.maskSensitiveData(data);
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
 
-        assertTrue(result.get(0).get("eventname").contains("***.***.***.***"));
-        assertTrue(result.get(0).get("errormessage").contains("***.***.***.***"));
+        assertTrue(result.getValue(0, "eventname").contains("***.***.***.***"));
+        assertTrue(result.getValue(0, "errormessage").contains("***.***.***.***"));
     }
 
     @Test
     @DisplayName("Should mask account IDs in values")
     void testMaskAccountIds() {
-        List<Map<String, String>> data = new ArrayList<>();
-        Map<String, String> row = new HashMap<>();
+        Map<String, String> row = new LinkedHashMap<>();
         row.put("eventname", "AssumeRole");
         row.put("errormessage", "Account 123456789012 denied");
-        data.add(row);
 
-        List<Map<String, String>> result = dataMaskingService.maskSensitiveData(data);
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
 
-        assertTrue(result.get(0).get("errormessage").contains("************"));
-        assertFalse(result.get(0).get("errormessage").contains("123456789012"));
+        assertTrue(result.getValue(0, "errormessage").contains("************"));
+        assertFalse(result.getValue(0, "errormessage").contains("123456789012"));
     }
 
     @Test
@@ -75,22 +80,19 @@ class DataMaskingServiceTest {
     @Test
     @DisplayName("Should handle null values gracefully")
     void testHandleNullValues() {
-        List<Map<String, String>> data = new ArrayList<>();
-        Map<String, String> row = new HashMap<>();
+        Map<String, String> row = new LinkedHashMap<>();
         row.put("eventname", "Login");
         row.put("sourceipaddress", null);
-        data.add(row);
 
-        List<Map<String, String>> result = dataMaskingService.maskSensitiveData(data);
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
 
-        assertNull(result.get(0).get("sourceipaddress"));
+        assertNull(result.getValue(0, "sourceipaddress"));
     }
 
     @Test
     @DisplayName("Should handle empty data")
     void testHandleEmptyData() {
-        List<Map<String, String>> data = new ArrayList<>();
-        List<Map<String, String>> result = dataMaskingService.maskSensitiveData(data);
+        QueryResultSet result = dataMaskingService.maskSensitiveData(QueryResultSet.empty());
 
         assertTrue(result.isEmpty());
     }
@@ -98,31 +100,77 @@ class DataMaskingServiceTest {
     @Test
     @DisplayName("Should mask short values in sensitive columns")
     void testMaskShortValues() {
-        List<Map<String, String>> data = new ArrayList<>();
-        Map<String, String> row = new HashMap<>();
+        Map<String, String> row = new LinkedHashMap<>();
         row.put("useridentity", "abc");
-        data.add(row);
 
-        List<Map<String, String>> result = dataMaskingService.maskSensitiveData(data);
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
 
-        assertEquals("****", result.get(0).get("useridentity"));
+        assertEquals("****", result.getValue(0, "useridentity"));
     }
 
     @Test
     @DisplayName("Should mask account IDs within ARNs")
     void testMaskArns() {
-        List<Map<String, String>> data = new ArrayList<>();
-        Map<String, String> row = new HashMap<>();
+        Map<String, String> row = new LinkedHashMap<>();
         row.put("eventname", "GetUser with arn:aws:iam::123456789012:user/john");
-        data.add(row);
 
-        List<Map<String, String>> result = dataMaskingService.maskSensitiveData(data);
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
 
         // The account ID (123456789012) within the ARN should be masked
-        String maskedValue = result.get(0).get("eventname");
+        String maskedValue = result.getValue(0, "eventname");
         assertTrue(maskedValue.contains("************"), "Expected masked account ID but got: " + maskedValue);
         assertFalse(maskedValue.contains("123456789012"), "Account ID should be masked");
         // ARN structure should still be visible
         assertTrue(maskedValue.contains("arn:aws:iam::"), "ARN structure should be preserved");
     }
+
+    @Test
+    @DisplayName("Should mask access keys and account IDs next to them")
+    void testMaskAccessKeys() {
+        Map<String, String> row = new LinkedHashMap<>();
+        row.put("errormessage", "Key AKIAABCDEFGHIJKLMNOP123456789012 rejected");
+
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
+
+        assertEquals("Key AKIA****************" + "************" + " rejected",
+                result.getValue(0, "errormessage"));
+    }
+
+    @Test
+    @DisplayName("Should return values without identifiers unchanged")
+    void testUnchangedValuesAreNotCopied() {
+        String value = new String("ConsoleLogin failed for user/admin");
+        Map<String, String> row = new LinkedHashMap<>();
+        row.put("errormessage", value);
+
+        QueryResultSet result = dataMaskingService.maskSensitiveData(toResultSet(row));
+
+        assertSame(value, result.getValue(0, "errormessage"));
+    }
+
+    @Test
+    @DisplayName("Should preserve row order when masking in parallel")
+    void testParallelMaskingPreservesOrder() {
+        config.setMaskingParallelThreshold(100);
+        config.setMaskingChunkSize(64);
+        
+        QueryResultSet.Builder builder = QueryResultSet.builder(List.of("eventid", "sourceipaddress"));
+        for (int i = 0; i < 5000; i++) {
+            builder.addRow(new String[]{"event-" + i, "10.0.0." + (i % 256)});
+        }
+
+        QueryResultSet result = dataMaskingService.maskSensitiveData(builder.build());
+
+        assertEquals(5000, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals("event-" + i, result.getValue(i, "eventid"));
+            assertTrue(result.getValue(i, "sourceipaddress").startsWith("10****"));
+        }
+    }
+
+    private QueryResultSet toResultSet(Map<String, String> row) {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(row.values().toArray(new String[0]));
+        return new QueryResultSet(new ArrayList<>(row.keySet()), rows);
+    }
 }
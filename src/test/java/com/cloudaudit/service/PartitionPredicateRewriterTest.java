@@ -0,0 +1,175 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.SqlRewrite;
+import com.cloudaudit.model.TableSchema;
+import com.cloudaudit.model.TableSchema.TableColumn;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionPredicateRewriterTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-15T10:00:00Z");
+
+    private static final List<TableColumn> COLUMNS = List.of(
+        new TableColumn("eventtime", "string"),
+        new TableColumn("eventname", "string"),
+        new TableColumn("awsregion", "string")
+    );
+
+    private static final TableSchema YEAR_MONTH_DAY = new TableSchema(COLUMNS, List.of(
+        new TableColumn("region", "string"),
+        new TableColumn("year", "string"),
+        new TableColumn("month", "string"),
+        new TableColumn("day", "string")
+    ), NOW);
+
+    private CloudAuditConfig config;
+    private SimpleMeterRegistry registry;
+    private PartitionPredicateRewriter rewriter;
+
+    @BeforeEach
+    void setUp() {
+        config = new CloudAuditConfig();
+        config.setTableName("cloudtrail_logs");
+        registry = new SimpleMeterRegistry();
+        rewriter = new PartitionPredicateRewriter(config, new PipelineMetrics(registry));
+    }
+
+    @Test
+    @DisplayName("Should add year/month/day predicates for a relative eventtime filter")
+    void testRelativeTimeFilter() {
+        SqlRewrite rewrite = rewriter.rewrite(
+            "SELECT eventname FROM cloudtrail_logs WHERE eventtime >= current_timestamp - interval '7' day "
+                + "ORDER BY eventtime DESC LIMIT 100;", YEAR_MONTH_DAY, NOW);
+
+        assertEquals("SELECT eventname FROM cloudtrail_logs WHERE (eventtime >= current_timestamp - interval '7' day) "
+                + "AND year = '2024' AND month = '03' AND day BETWEEN '08' AND '16' "
+                + "ORDER BY eventtime DESC LIMIT 100;", rewrite.getSql());
+        assertEquals(9, rewrite.getPartitionDays());
+        assertFalse(rewrite.isLimitAdded());
+    }
+
+    @Test
+    @DisplayName("Should enumerate months when the range crosses a month boundary")
+    void testRangeAcrossMonths() {
+        SqlRewrite rewrite = rewriter.rewrite(
+            "SELECT * FROM cloudtrail_logs t WHERE t.eventtime BETWEEN '2024-01-30T00:00:00Z' AND '2024-03-02T00:00:00Z' "
+                + "AND awsregion IN ('us-east-1', 'eu-west-1') LIMIT 10",
+            YEAR_MONTH_DAY, NOW);
+
+        assertTrue(rewrite.getSql().contains("((year = '2024' AND month = '01' AND day BETWEEN '30' AND '31') "
+            + "OR (year = '2024' AND month = '02') "
+            + "OR (year = '2024' AND month = '03' AND day BETWEEN '01' AND '03'))"), rewrite.getSql());
+        assertTrue(rewrite.getSql().contains("region IN ('us-east-1', 'eu-west-1')"));
+        assertEquals(34, rewrite.getPartitionDays());
+    }
+
+    @Test
+    @DisplayName("Should compare integer year/month/day keys with unpadded numbers")
+    void testIntegerYearMonthDayKeys() {
+        TableSchema schema = new TableSchema(COLUMNS, List.of(
+            new TableColumn("year", "int"),
+            new TableColumn("month", "int"),
+            new TableColumn("day", "int")
+        ), NOW);
+
+        SqlRewrite rewrite = rewriter.rewrite(
+            "SELECT * FROM cloudtrail_logs WHERE eventtime BETWEEN '2024-02-28T00:00:00Z' AND '2024-03-02T00:00:00Z'",
+            schema, NOW);
+
+        assertTrue(rewrite.getSql().contains("((year = 2024 AND month = 2 AND day BETWEEN 28 AND 29) "
+            + "OR (year = 2024 AND month = 3 AND day BETWEEN 1 AND 3))"), rewrite.getSql());
+        assertFalse(rewrite.getSql().contains("'0"), rewrite.getSql());
+    }
+
+    @Test
+    @DisplayName("Should use a single date partition key when the table has one")
+    void testSingleDateKey() {
+        TableSchema schema = new TableSchema(COLUMNS, List.of(new TableColumn("timestamp", "string")), NOW);
+
+        SqlRewrite rewrite = rewriter.rewrite(
+            "SELECT eventname FROM cloudtrail_logs WHERE from_iso8601_timestamp(eventtime) > date_add('day', -2, now())",
+            schema, NOW);
+
+        assertEquals("SELECT eventname FROM cloudtrail_logs WHERE (from_iso8601_timestamp(eventtime) > "
+                + "date_add('day', -2, now())) AND \"timestamp\" BETWEEN '2024/03/13' AND '2024/03/16' LIMIT 10000;",
+            rewrite.getSql());
+        assertTrue(rewrite.isLimitAdded());
+    }
+
+    @Test
+    @DisplayName("Should only append a LIMIT when the query has no time filter")
+    void testNoTimeFilter() {
+        SqlRewrite rewrite = rewriter.rewrite(
+            "SELECT eventname, count(*) FROM cloudtrail_logs GROUP BY eventname", YEAR_MONTH_DAY, NOW);
+
+        assertEquals("SELECT eventname, count(*) FROM cloudtrail_logs GROUP BY eventname LIMIT 10000;", rewrite.getSql());
+        assertFalse(rewrite.isPartitionPruned());
+    }
+
+    @Test
+    @DisplayName("Should leave time filters under a top-level OR alone")
+    void testIgnoresDisjunctions() {
+        SqlRewrite rewrite = rewriter.rewrite(
+            "SELECT * FROM cloudtrail_logs WHERE eventtime > '2024-03-01' OR eventname = 'ConsoleLogin' LIMIT 5",
+            YEAR_MONTH_DAY, NOW);
+
+        assertEquals("SELECT * FROM cloudtrail_logs WHERE eventtime > '2024-03-01' OR eventname = 'ConsoleLogin' LIMIT 5;",
+            rewrite.getSql());
+        assertFalse(rewrite.isPartitionPruned());
+    }
+
+    @Test
+    @DisplayName("Should not rewrite joins, unions or text inside literals")
+    void testSkipsUnsupportedQueries() {
+        String join = "SELECT * FROM cloudtrail_logs a JOIN other b ON a.eventname = b.eventname "
+            + "WHERE a.eventtime > '2024-03-01' LIMIT 5";
+        assertFalse(rewriter.rewrite(join, YEAR_MONTH_DAY, NOW).isPartitionPruned());
+
+        String union = "SELECT eventname FROM cloudtrail_logs WHERE eventtime > '2024-03-01' "
+            + "UNION SELECT eventname FROM cloudtrail_logs";
+        assertEquals(union, rewriter.rewrite(union, YEAR_MONTH_DAY, NOW).getSql());
+
+        SqlRewrite literal = rewriter.rewrite(
+            "SELECT * FROM cloudtrail_logs WHERE eventname = 'a LIMIT b'", YEAR_MONTH_DAY, NOW);
+        assertTrue(literal.isLimitAdded());
+    }
+
+    @Test
+    @DisplayName("Should leave partition predicates alone when pruning is disabled")
+    void testPruningDisabled() {
+        config.setPartitionPruningEnabled(false);
+        config.setSqlDefaultLimit(0);
+        String sql = "SELECT * FROM cloudtrail_logs WHERE eventtime > '2024-03-01'";
+
+        SqlRewrite rewrite = rewriter.rewrite(sql, YEAR_MONTH_DAY, NOW);
+
+        assertEquals(sql + ";", rewrite.getSql());
+        assertFalse(rewrite.isPartitionPruned());
+        assertFalse(rewrite.isLimitAdded());
+    }
+
+    @Test
+    @DisplayName("Should estimate bytes saved against the latest full scan")
+    void testRecordsBytesSaved() {
+        SqlRewrite fullScan = rewriter.rewrite("SELECT * FROM cloudtrail_logs", YEAR_MONTH_DAY, NOW);
+        SqlRewrite pruned = rewriter.rewrite(
+            "SELECT * FROM cloudtrail_logs WHERE eventtime > '2024-03-14'", YEAR_MONTH_DAY, NOW);
+
+        rewriter.recordScan(pruned, 100L);
+        assertEquals(0, registry.get("cloudaudit.athena.bytes.saved").summary().count());
+
+        rewriter.recordScan(fullScan, 10_000L);
+        rewriter.recordScan(pruned, 400L);
+
+        assertEquals(9_600.0, registry.get("cloudaudit.athena.bytes.saved").summary().totalAmount());
+    }
+}
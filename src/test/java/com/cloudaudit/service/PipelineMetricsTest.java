@@ -0,0 +1,70 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.model.StreamedCompletion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private PipelineMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new PipelineMetrics(registry);
+    }
+
+    @Test
+    @DisplayName("Should time async stages whether they succeed or fail")
+    void testTimesAsyncStages() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> timed = metrics.timeAsync(PipelineMetrics.SQL_GENERATION, () -> pending);
+
+        assertNull(registry.find("cloudaudit.pipeline.stage").tag("stage", "sql_generation").timer());
+
+        pending.completeExceptionally(new IllegalStateException("throttled"));
+
+        assertTrue(timed.isCompletedExceptionally());
+        assertEquals(1, registry.get("cloudaudit.pipeline.stage").tag("stage", "sql_generation").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should count retries per operation")
+    void testCountsRetries() {
+        metrics.recordRetries("athena.start", 0);
+        assertNull(registry.find("cloudaudit.retries").counter());
+
+        metrics.recordRetries("athena.start", 2);
+        metrics.recordRetries("bedrock.invoke", 1);
+
+        assertEquals(2.0, registry.get("cloudaudit.retries").tag("operation", "athena.start").counter().count());
+        assertEquals(1.0, registry.get("cloudaudit.retries").tag("operation", "bedrock.invoke").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should count result pages and rows")
+    void testCountsResultPages() {
+        metrics.recordResultPage(1000);
+        metrics.recordResultPage(42);
+
+        assertEquals(2.0, registry.get("cloudaudit.athena.result.pages").counter().count());
+        assertEquals(1042.0, registry.get("cloudaudit.athena.result.rows").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should record streamed completion throughput")
+    void testRecordsTokensPerSecond() {
+        metrics.recordStreamedCompletion(new StreamedCompletion("text", 120L, 2000, 100, false));
+        metrics.recordStreamedCompletion(new StreamedCompletion("", null, 0, 0, true));
+
+        assertEquals(1, registry.get("cloudaudit.bedrock.tokens.per.second").summary().count());
+        assertEquals(50.0, registry.get("cloudaudit.bedrock.tokens.per.second").summary().max());
+    }
+}
@@ -0,0 +1,207 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.athena.model.BatchGetQueryExecutionRequest;
+import software.amazon.awssdk.services.athena.model.BatchGetQueryExecutionResponse;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+import software.amazon.awssdk.services.athena.model.QueryExecutionState;
+import software.amazon.awssdk.services.athena.model.QueryExecutionStatistics;
+import software.amazon.awssdk.services.athena.model.QueryExecutionStatus;
+import software.amazon.awssdk.services.athena.model.StopQueryExecutionRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class QueryCompletionPollerTest {
+
+    private AthenaClient athenaClient;
+    private CloudAuditConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private PipelineMetrics metrics;
+    private QueryCompletionPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        athenaClient = mock(AthenaClient.class);
+        config = new CloudAuditConfig();
+        config.setPollInitialIntervalMillis(10);
+        config.setPollMaxIntervalMillis(40);
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new PipelineMetrics(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        poller.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should complete future once the query succeeds")
+    void testCompletesOnSuccess() throws Exception {
+        when(athenaClient.batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class)))
+                .thenReturn(response(execution("q1", QueryExecutionState.RUNNING)))
+                .thenReturn(response(execution("q1", QueryExecutionState.SUCCEEDED)));
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+
+        QueryExecution execution = poller.awaitCompletion("q1").get(5, TimeUnit.SECONDS);
+
+        assertEquals("q1", execution.queryExecutionId());
+        assertEquals(0, poller.getInFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should record Athena statistics for succeeded queries")
+    void testRecordsExecutionStatistics() throws Exception {
+        QueryExecution succeeded = execution("q1", QueryExecutionState.SUCCEEDED).toBuilder()
+                .statistics(QueryExecutionStatistics.builder()
+                        .queryQueueTimeInMillis(250L)
+                        .engineExecutionTimeInMillis(1500L)
+                        .dataScannedInBytes(4096L)
+                        .build())
+                .build();
+        when(athenaClient.batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class)))
+                .thenReturn(response(succeeded));
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+
+        poller.awaitCompletion("q1").get(5, TimeUnit.SECONDS);
+
+        assertEquals(4096.0, meterRegistry.get("cloudaudit.athena.bytes.scanned").summary().totalAmount());
+        assertEquals(250.0, meterRegistry.get("cloudaudit.athena.queue.time").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1500.0, meterRegistry.get("cloudaudit.athena.execution.time").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Should fail future when the query fails")
+    void testFailsOnQueryFailure() {
+        when(athenaClient.batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class)))
+                .thenReturn(response(execution("q1", QueryExecutionState.FAILED)));
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+
+        CompletableFuture<QueryExecution> future = poller.awaitCompletion("q1");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().startsWith("Query failed"));
+    }
+
+    @Test
+    @DisplayName("Should check all in-flight queries with a single batch call")
+    void testBatchesStatusChecks() throws Exception {
+        when(athenaClient.batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class)))
+                .thenReturn(response(execution("q1", QueryExecutionState.SUCCEEDED),
+                                     execution("q2", QueryExecutionState.SUCCEEDED)));
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+        poller.shutdown();
+
+        CompletableFuture<QueryExecution> first = poller.awaitCompletion("q1");
+        CompletableFuture<QueryExecution> second = poller.awaitCompletion("q2");
+        Thread.sleep(20);
+        poller.poll();
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        verify(athenaClient, times(1)).batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should answer waits on an already-completed query without polling again")
+    void testAnswersCompletedQueriesImmediately() throws Exception {
+        when(athenaClient.batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class)))
+                .thenReturn(response(execution("q1", QueryExecutionState.SUCCEEDED)));
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+        poller.awaitCompletion("q1").get(5, TimeUnit.SECONDS);
+        poller.shutdown();
+
+        long start = System.nanoTime();
+        CompletableFuture<QueryExecution> again = poller.awaitCompletion("q1");
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(again.isDone());
+        assertEquals("q1", again.get().queryExecutionId());
+        assertTrue(waitedMillis < config.getPollInitialIntervalMillis());
+        assertEquals(QueryExecutionState.SUCCEEDED, poller.getLatestStatus("q1").status().state());
+        verify(athenaClient, times(1)).batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should poll again once a completed query has expired")
+    void testForgetsExpiredCompletedQueries() throws Exception {
+        config.setPollCompletedRetentionSeconds(0);
+        when(athenaClient.batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class)))
+                .thenReturn(response(execution("q1", QueryExecutionState.SUCCEEDED)));
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+        poller.awaitCompletion("q1").get(5, TimeUnit.SECONDS);
+        poller.shutdown();
+        poller.poll();
+
+        assertFalse(poller.awaitCompletion("q1").isDone());
+    }
+
+    @Test
+    @DisplayName("Should time out queries that exceed the configured limit")
+    void testTimesOut() {
+        config.setQueryTimeoutSeconds(0);
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+
+        CompletableFuture<QueryExecution> future = poller.awaitCompletion("q1");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains("timed out"));
+    }
+
+    @Test
+    @DisplayName("Should stop timed out queries in Athena")
+    void testStopsTimedOutQueries() throws Exception {
+        config.setQueryTimeoutSeconds(0);
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+
+        CompletableFuture<QueryExecution> future = poller.awaitCompletion("q1");
+
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        verify(athenaClient, timeout(5000)).stopQueryExecution(StopQueryExecutionRequest.builder()
+                .queryExecutionId("q1")
+                .build());
+        assertEquals(1.0, meterRegistry.get("cloudaudit.athena.cancelled").tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should stop running queries that scan more than the configured limit")
+    void testStopsQueriesOverScanLimit() {
+        config.setAthenaMaxBytesScanned(1000);
+        QueryExecution running = execution("q1", QueryExecutionState.RUNNING).toBuilder()
+                .statistics(QueryExecutionStatistics.builder().dataScannedInBytes(4096L).build())
+                .build();
+        when(athenaClient.batchGetQueryExecution(any(BatchGetQueryExecutionRequest.class)))
+                .thenReturn(response(running));
+        poller = new QueryCompletionPoller(athenaClient, config, metrics);
+
+        CompletableFuture<QueryExecution> future = poller.awaitCompletion("q1");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(QueryLimitExceededException.class, e.getCause());
+        verify(athenaClient, timeout(5000)).stopQueryExecution(any(StopQueryExecutionRequest.class));
+    }
+
+    private QueryExecution execution(String id, QueryExecutionState state) {
+        return QueryExecution.builder()
+                .queryExecutionId(id)
+                .status(QueryExecutionStatus.builder().state(state).build())
+                .build();
+    }
+
+    private BatchGetQueryExecutionResponse response(QueryExecution... executions) {
+        return BatchGetQueryExecutionResponse.builder()
+                .queryExecutions(executions)
+                .build();
+    }
+}
@@ -0,0 +1,179 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.dto.QueryRequest;
+import com.cloudaudit.dto.QueryResponse;
+import com.cloudaudit.model.QueryCancellation;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.model.TableSchema;
+import com.cloudaudit.model.TableSchema.TableColumn;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Measures throughput of the async query pipeline, with AWS calls stubbed as futures that
+// complete after typical Bedrock/Athena latencies. Two runs model QueryJobService, whose worker
+// thread blocks on each job's pipeline future: a Tomcat-sized pool of platform workers, then one
+// virtual thread per job (Java 21 only). A third run models /api/query, which holds no thread
+// while the pipeline runs.
+//
+// Run with: mvn -Pjava21 test -Dtest=QueryPipelineThroughputBenchmark -Dbenchmark=true
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class QueryPipelineThroughputBenchmark {
+
+    private static final int REQUESTS = 2000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long SQL_GENERATION_MILLIS = 200;
+    private static final long ATHENA_MILLIS = 300;
+    private static final long DESCRIPTION_MILLIS = 200;
+
+    // One timer thread completes every stubbed call, as the SDK's event loop and the completion poller
+    // do in production; CompletableFuture.delayedExecutor would start a thread per call on small machines
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private QueryPipelineService pipelineService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SchemaCatalogService schemaCatalogService = mock(SchemaCatalogService.class, withSettings().stubOnly());
+        when(schemaCatalogService.getSchemaAsync()).thenReturn(CompletableFuture.completedFuture(new TableSchema(
+            List.of(new TableColumn("eventname", "string"), new TableColumn("eventtime", "string")),
+            List.of(),
+            Instant.now()
+        )));
+
+        SqlQueryService sqlQueryService = mock(SqlQueryService.class, withSettings().stubOnly());
+        when(sqlQueryService.generateSqlQueryAsync(anyString(), anyString()))
+                .thenAnswer(invocation -> completeAfter(SQL_GENERATION_MILLIS, "SELECT eventname, eventtime FROM logs;"));
+        when(sqlQueryService.describeResultsAsync(anyString(), any(QueryResultSet.class), anyBoolean()))
+                .thenAnswer(invocation -> completeAfter(DESCRIPTION_MILLIS, "Two console logins."));
+
+        AthenaService athenaService = mock(AthenaService.class, withSettings().stubOnly());
+        when(athenaService.executeQueryAsync(anyString())).thenReturn(CompletableFuture.completedFuture("execution-id"));
+        when(athenaService.awaitExecutionAsync(anyString())).thenReturn(CompletableFuture.completedFuture(
+            QueryExecution.builder().build()));
+        when(athenaService.awaitExecutionAsync(anyString(), any()))
+                .thenAnswer(invocation -> completeAfter(ATHENA_MILLIS, QueryExecution.builder().build()));
+        when(athenaService.fetchQueryResultsAsync(anyString(), anyInt())).thenReturn(CompletableFuture.completedFuture(
+            QueryResultSet.builder(List.of("eventname", "eventtime"))
+                .addRow(new String[]{"ConsoleLogin", "2024-01-05T10:00:00Z"})
+                .addRow(new String[]{"ConsoleLogin", "2024-01-05T11:00:00Z"})
+                .build()));
+
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        DataMaskingService dataMaskingService = new DataMaskingService(new CloudAuditConfig(), metrics);
+        // Admission control would cap concurrency at the Athena quota and hide the thread model difference
+        CloudAuditConfig unlimited = new CloudAuditConfig();
+        unlimited.setAthenaMaxConcurrentQueries(0);
+        pipelineService = new QueryPipelineService(
+            athenaService,
+            sqlQueryService,
+            dataMaskingService,
+            schemaCatalogService,
+            mock(QueryExecutionRegistry.class, withSettings().stubOnly()),
+            new PartitionPredicateRewriter(new CloudAuditConfig(), metrics),
+            new AthenaAdmissionControl(unlimited, new SimpleMeterRegistry()),
+            metrics,
+            unlimited
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Report pipeline throughput for job workers on platform and virtual threads, and without a worker")
+    void compareThroughput() throws Exception {
+        // Warms up the JIT so the first measured run is not penalised
+        measureAsync("warm-up");
+        double asyncThroughput = measureAsync("/api/query (no worker thread)");
+
+        ExecutorService platform = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        double platformThroughput = measureWorkers("job workers, " + TOMCAT_MAX_THREADS + " platform threads", platform);
+        assertTrue(asyncThroughput > platformThroughput);
+
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        assumeTrue(virtual != null, "Virtual threads require Java 21 (mvn -Pjava21)");
+        double virtualThroughput = measureWorkers("job workers, virtual thread per job", virtual);
+
+        System.out.printf("Virtual over platform job workers: %.1fx%n", virtualThroughput / platformThroughput);
+        assertTrue(virtualThroughput > platformThroughput);
+    }
+
+    private double measureAsync(String label) {
+        QueryRequest request = new QueryRequest("Show failed console logins");
+        long start = System.nanoTime();
+        List<CompletableFuture<QueryResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(pipelineService.executeAsync(request, new QueryCancellation()));
+        }
+        for (CompletableFuture<QueryResponse> response : responses) {
+            assertNull(response.join().getError());
+        }
+        return report(label, start);
+    }
+
+    private double measureWorkers(String label, ExecutorService executor) throws Exception {
+        QueryRequest request = new QueryRequest("Show failed console logins");
+        List<Callable<QueryResponse>> calls = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            // Mirrors QueryJobService.run: the worker thread blocks on the async pipeline
+            calls.add(() -> pipelineService.executeAsync(request, event -> { }, new QueryCancellation()).get());
+        }
+
+        long start = System.nanoTime();
+        for (Future<QueryResponse> future : executor.invokeAll(calls)) {
+            assertNull(future.get().getError());
+        }
+        double throughput = report(label, start);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return throughput;
+    }
+
+    private <T> CompletableFuture<T> completeAfter(long millis, T value) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete(value), millis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private static double report(String label, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double throughput = REQUESTS / seconds;
+        System.out.printf("%-40s %6d requests in %6.2fs = %8.1f req/s%n", label, REQUESTS, seconds, throughput);
+        return throughput;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        // Reflective so the test sources still compile for Java 17
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
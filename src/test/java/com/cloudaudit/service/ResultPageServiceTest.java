@@ -0,0 +1,158 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.dto.ResultPage;
+import com.cloudaudit.model.QueryResultSet;
+import com.cloudaudit.model.ResultCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.athena.model.ColumnInfo;
+import software.amazon.awssdk.services.athena.model.Datum;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.ResultSet;
+import software.amazon.awssdk.services.athena.model.ResultSetMetadata;
+import software.amazon.awssdk.services.athena.model.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ResultPageServiceTest {
+
+    private AthenaService athenaService;
+    private AthenaResultCache resultCache;
+    private DataMaskingService dataMaskingService;
+    private ResultPageService service;
+
+    @BeforeEach
+    void setUp() {
+        CloudAuditConfig config = new CloudAuditConfig();
+        athenaService = mock(AthenaService.class);
+        resultCache = new AthenaResultCache(config);
+        dataMaskingService = new DataMaskingService(config, new PipelineMetrics(new SimpleMeterRegistry()));
+        service = new ResultPageService(athenaService, resultCache, dataMaskingService, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataMaskingService.shutdown();
+        resultCache.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should skip the header row and continue within the same Athena page")
+    void testFirstPage() throws Exception {
+        when(athenaService.fetchResultPage(eq("exec-1"), isNull(), anyInt()))
+                .thenReturn(page(true, 0, 5, "token-2"));
+
+        ResultPage first = service.getPage("exec-1", ResultCursor.start(), 3);
+
+        assertEquals(List.of("eventname"), first.getColumns());
+        assertEquals(3, first.getRows().size());
+        assertEquals("event-0", first.getRows().get(0)[0]);
+        assertEquals(new ResultCursor(null, 3), ResultCursor.decode(first.getNextCursor()));
+    }
+
+    @Test
+    @DisplayName("Should fill a page across Athena page boundaries")
+    void testCrossesAthenaPages() throws Exception {
+        when(athenaService.fetchResultPage(eq("exec-1"), isNull(), anyInt()))
+                .thenReturn(page(true, 0, 5, "token-2"));
+        when(athenaService.fetchResultPage(eq("exec-1"), eq("token-2"), anyInt()))
+                .thenReturn(page(false, 5, 5, null));
+
+        ResultPage page = service.getPage("exec-1", new ResultCursor(null, 3), 4);
+
+        assertEquals(List.of("event-3", "event-4", "event-5", "event-6"), values(page));
+        assertEquals(new ResultCursor("token-2", 2), ResultCursor.decode(page.getNextCursor()));
+
+        ResultPage last = service.getPage("exec-1", ResultCursor.decode(page.getNextCursor()), 10);
+        assertEquals(List.of("event-7", "event-8", "event-9"), values(last));
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Should request only the rows a page needs from Athena")
+    void testRequestsOnlyNeededRows() throws Exception {
+        // Honours maxResults the way Athena does, handing out a token for wherever the page stopped
+        when(athenaService.fetchResultPage(eq("exec-1"), any(), anyInt())).thenAnswer(invocation -> {
+            String token = invocation.getArgument(1);
+            int maxResults = invocation.getArgument(2);
+            boolean first = token == null;
+            int firstRow = first ? 0 : Integer.parseInt(token);
+            int rowCount = Math.min(maxResults - (first ? 1 : 0), 500 - firstRow);
+            int nextRow = firstRow + rowCount;
+            return page(first, firstRow, rowCount, nextRow < 500 ? String.valueOf(nextRow) : null);
+        });
+
+        ResultPage first = service.getPage("exec-1", ResultCursor.start(), 50);
+        ResultPage second = service.getPage("exec-1", ResultCursor.decode(first.getNextCursor()), 50);
+
+        assertEquals("event-0", values(first).get(0));
+        assertEquals(List.of("event-50", "event-99"), List.of(values(second).get(0), values(second).get(49)));
+        verify(athenaService).fetchResultPage("exec-1", null, 51);
+        verify(athenaService).fetchResultPage("exec-1", "50", 50);
+    }
+
+    @Test
+    @DisplayName("Should serve offsets from cached results without calling Athena")
+    void testServesFromCache() throws Exception {
+        QueryResultSet.Builder results = QueryResultSet.builder(List.of("eventname"));
+        for (int i = 0; i < 10; i++) {
+            results.addRow(new String[]{"event-" + i});
+        }
+        resultCache.putResults("exec-1", results.build());
+
+        ResultPage page = service.getPage("exec-1", new ResultCursor(null, 8), 5);
+
+        assertEquals(List.of("event-8", "event-9"), values(page));
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(athenaService);
+    }
+
+    @Test
+    @DisplayName("Should round-trip cursors and reject malformed ones")
+    void testCursorEncoding() {
+        ResultCursor cursor = new ResultCursor("AbC/+=:token", 42);
+
+        assertEquals(cursor, ResultCursor.decode(cursor.encode()));
+        assertEquals(ResultCursor.start(), ResultCursor.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> ResultCursor.decode("not a cursor!"));
+    }
+
+    private List<String> values(ResultPage page) {
+        List<String> values = new ArrayList<>();
+        page.getRows().forEach(row -> values.add(row[0]));
+        return values;
+    }
+
+    private GetQueryResultsResponse page(boolean withHeader, int firstRow, int rowCount, String nextToken) {
+        List<Row> rows = new ArrayList<>();
+        if (withHeader) {
+            rows.add(row("eventname"));
+        }
+        for (int i = firstRow; i < firstRow + rowCount; i++) {
+            rows.add(row("event-" + i));
+        }
+
+        return GetQueryResultsResponse.builder()
+                .resultSet(ResultSet.builder()
+                        .resultSetMetadata(ResultSetMetadata.builder()
+                                .columnInfo(ColumnInfo.builder().name("eventname").type("varchar").build())
+                                .build())
+                        .rows(rows)
+                        .build())
+                .nextToken(nextToken)
+                .build();
+    }
+
+    private Row row(String value) {
+        return Row.builder().data(Datum.builder().varCharValue(value).build()).build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.QueryResultSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultSummaryBuilderTest {
+
+    private CloudAuditConfig config;
+    private ResultSummaryBuilder builder;
+
+    @BeforeEach
+    void setUp() {
+        config = new CloudAuditConfig();
+        builder = new ResultSummaryBuilder(config);
+    }
+
+    @Test
+    @DisplayName("Should state constant columns once instead of repeating them per row")
+    void testConstantColumns() {
+        String summary = builder.summarize(loginResults(10));
+
+        assertTrue(summary.contains("Same in every row: awsregion=us-east-1"));
+        assertFalse(summary.contains("awsregion\t"));
+    }
+
+    @Test
+    @DisplayName("Should include top values and timestamp ranges")
+    void testColumnStatistics() {
+        String summary = builder.summarize(loginResults(10));
+
+        assertTrue(summary.contains("- eventname: 2 distinct, top: ConsoleLogin (7), GetUser (3)"));
+        assertTrue(summary.contains("range 2024-01-01T00:00:00Z to 2024-01-01T09:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("Should truncate wide cells")
+    void testTruncatesWideCells() {
+        config.setDescriptionCellMaxChars(20);
+
+        String summary = builder.summarize(loginResults(3));
+
+        assertTrue(summary.contains("{\"userName\": \"alice\"...(+"));
+        assertFalse(summary.contains("x".repeat(100)));
+    }
+
+    @Test
+    @DisplayName("Should stay within the character budget and report omitted rows")
+    void testBudget() {
+        config.setDescriptionPromptMaxChars(1000);
+
+        String summary = builder.summarize(loginResults(100));
+
+        assertTrue(summary.length() <= 1000);
+        assertTrue(summary.matches("(?s).*\\(\\d+ more rows omitted\\)\\n$"));
+    }
+
+    @Test
+    @DisplayName("Should skip a row too wide for the budget and keep the rows after it")
+    void testSkipsOversizedRow() {
+        config.setDescriptionPromptMaxChars(1000);
+        config.setDescriptionCellMaxChars(5000);
+        QueryResultSet results = QueryResultSet.builder(Arrays.asList("eventname", "requestparameters"))
+            .addRow(new String[]{"PutBucketPolicy", "x".repeat(2000)})
+            .addRow(new String[]{"ConsoleLogin", "{}"})
+            .addRow(new String[]{"GetUser", "{\"userName\": \"alice\"}"})
+            .build();
+
+        String summary = builder.summarize(results);
+
+        assertTrue(summary.length() <= 1000);
+        assertTrue(summary.contains("ConsoleLogin\t{}\n"));
+        assertTrue(summary.contains("GetUser\t{\"userName\": \"alice\"}\n"));
+        assertTrue(summary.endsWith("(1 more rows omitted)\n"));
+    }
+
+    private QueryResultSet loginResults(int rows) {
+        QueryResultSet.Builder results = QueryResultSet.builder(
+            Arrays.asList("eventname", "eventtime", "awsregion", "requestparameters"));
+        for (int i = 0; i < rows; i++) {
+            results.addRow(new String[]{
+                i % 10 < 7 ? "ConsoleLogin" : "GetUser",
+                String.format("2024-01-01T%02d:00:00Z", i % 24),
+                "us-east-1",
+                "{\"userName\": \"alice\", \"policy\": \"" + "x".repeat(200) + i + "\"}"
+            });
+        }
+        return results.build();
+    }
+}
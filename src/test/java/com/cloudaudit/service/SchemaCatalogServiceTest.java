@@ -0,0 +1,86 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import com.cloudaudit.model.TableSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.athena.model.Column;
+import software.amazon.awssdk.services.athena.model.GetTableMetadataRequest;
+import software.amazon.awssdk.services.athena.model.GetTableMetadataResponse;
+import software.amazon.awssdk.services.athena.model.TableMetadata;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SchemaCatalogServiceTest {
+
+    private AthenaClient athenaClient;
+    private AthenaService athenaService;
+    private CloudAuditConfig config;
+    private SchemaCatalogService schemaCatalogService;
+
+    @BeforeEach
+    void setUp() {
+        athenaClient = mock(AthenaClient.class);
+        athenaService = mock(AthenaService.class);
+        config = new CloudAuditConfig();
+        config.setDatabaseName("audit_db");
+        config.setTableName("cloudtrail_logs");
+
+        TableMetadata metadata = TableMetadata.builder()
+                .name("cloudtrail_logs")
+                .columns(Column.builder().name("eventname").type("string").build(),
+                         Column.builder().name("eventtime").type("string").build())
+                .partitionKeys(Column.builder().name("region").type("string").build())
+                .build();
+        when(athenaClient.getTableMetadata(any(GetTableMetadataRequest.class)))
+                .thenReturn(GetTableMetadataResponse.builder().tableMetadata(metadata).build());
+
+        schemaCatalogService = new SchemaCatalogService(athenaClient, athenaService, config);
+    }
+
+    @Test
+    @DisplayName("Should load columns and partition keys from table metadata")
+    void testLoadSchema() throws InterruptedException {
+        TableSchema schema = schemaCatalogService.getSchema();
+
+        assertEquals(2, schema.getColumns().size());
+        assertEquals("region", schema.getPartitionKeys().get(0).getName());
+        assertEquals(3, schema.getAllColumns().size());
+        verifyNoInteractions(athenaService);
+    }
+
+    @Test
+    @DisplayName("Should serve cached schema within TTL")
+    void testCachedSchema() throws InterruptedException {
+        TableSchema first = schemaCatalogService.getSchema();
+        TableSchema second = schemaCatalogService.getSchema();
+
+        assertSame(first, second);
+        verify(athenaClient, times(1)).getTableMetadata(any(GetTableMetadataRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should reload schema after invalidation")
+    void testInvalidate() throws InterruptedException {
+        schemaCatalogService.getSchema();
+        schemaCatalogService.invalidate();
+        schemaCatalogService.getSchema();
+
+        verify(athenaClient, times(2)).getTableMetadata(any(GetTableMetadataRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should reload schema once TTL has expired")
+    void testExpiredSchema() throws InterruptedException {
+        config.setSchemaCacheTtlMinutes(0);
+
+        schemaCatalogService.getSchema();
+        schemaCatalogService.getSchema();
+
+        verify(athenaClient, times(2)).getTableMetadata(any(GetTableMetadataRequest.class));
+    }
+}
@@ -0,0 +1,149 @@
+package com.cloudaudit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", new PipelineMetrics(registry));
+
+    @Test
+    @DisplayName("Should share one async call between concurrent callers with the same key")
+    void testAsyncCoalescing() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> backend = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return backend;
+        });
+        CompletableFuture<String> second = singleFlight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return backend;
+        });
+        backend.complete("result");
+
+        assertEquals("result", first.get(5, TimeUnit.SECONDS));
+        assertEquals("result", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getCoalescedCount());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should export executions, coalesced callers and in-flight calls tagged by flight name")
+    void testExportsMetrics() {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+        singleFlight.executeAsync("key", () -> backend);
+        singleFlight.executeAsync("key", () -> backend);
+
+        assertEquals(1.0, registry.get("cloudaudit.singleflight.executions").tag("flight", "test").functionCounter().count());
+        assertEquals(1.0, registry.get("cloudaudit.singleflight.coalesced").tag("flight", "test").functionCounter().count());
+        assertEquals(1.0, registry.get("cloudaudit.singleflight.in.flight").tag("flight", "test").gauge().value());
+
+        backend.complete("result");
+
+        assertEquals(0.0, registry.get("cloudaudit.singleflight.in.flight").tag("flight", "test").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should not let one caller's cancellation fail the others")
+    void testCancellationIsolated() throws Exception {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("key", () -> backend);
+        CompletableFuture<String> second = singleFlight.executeAsync("key", () -> backend);
+        first.cancel(true);
+        backend.complete("result");
+
+        assertEquals("result", second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should cancel the backend call once every caller has cancelled")
+    void testAllCallersCancelled() throws Exception {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("key", () -> backend);
+        CompletableFuture<String> second = singleFlight.executeAsync("key", () -> backend);
+        first.cancel(true);
+        assertFalse(backend.isCancelled());
+
+        second.cancel(true);
+        assertTrue(backend.isCancelled());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should propagate failures to every waiting caller and allow a fresh call afterwards")
+    void testFailurePropagation() throws Exception {
+        CompletableFuture<String> backend = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.executeAsync("key", () -> backend);
+        CompletableFuture<String> second = singleFlight.executeAsync("key", () -> backend);
+        backend.completeExceptionally(new IllegalStateException("throttled"));
+
+        assertInstanceOf(IllegalStateException.class,
+            assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IllegalStateException.class,
+            assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+
+        assertEquals("retry", singleFlight.executeAsync("key",
+            () -> CompletableFuture.completedFuture("retry")).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should share one blocking call between concurrent threads")
+    void testSyncCoalescing() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                calls.incrementAndGet();
+                leaderStarted.countDown();
+                await(release);
+                return "result";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            Future<String> follower = executor.submit(() -> singleFlight.execute("key", () -> {
+                calls.incrementAndGet();
+                return "other";
+            }));
+            while (singleFlight.getCoalescedCount() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
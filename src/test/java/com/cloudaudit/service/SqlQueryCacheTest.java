@@ -0,0 +1,110 @@
+package com.cloudaudit.service;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlQueryCacheTest {
+
+    private static final String CONTEXT = "Columns:\neventname string\neventtime string";
+    private static final String SQL = "SELECT eventname FROM t WHERE errorcode IS NOT NULL;";
+
+    private CloudAuditConfig config;
+    private SimpleMeterRegistry registry;
+    private SqlQueryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        config = new CloudAuditConfig();
+        registry = new SimpleMeterRegistry();
+        cache = new SqlQueryCache(config, new PipelineMetrics(registry));
+    }
+
+    @Test
+    @DisplayName("Should hit for the same question regardless of case and punctuation")
+    void testNormalizedHit() {
+        cache.put("Failed console logins last 24h?", CONTEXT, SQL);
+
+        assertEquals(Optional.of(SQL), cache.get("  failed CONSOLE logins, last 24h ", CONTEXT));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Should reuse SQL for near-identical phrasings")
+    void testSimilarHit() {
+        cache.put("who deleted S3 buckets", CONTEXT, SQL);
+
+        assertEquals(Optional.of(SQL), cache.get("show me who deleted the buckets in s3", CONTEXT));
+        assertEquals(1, cache.getSimilarHitCount());
+    }
+
+    @Test
+    @DisplayName("Should export lookups by outcome")
+    void testExportsLookups() {
+        cache.put("who deleted S3 buckets", CONTEXT, SQL);
+
+        cache.get("who deleted S3 buckets", CONTEXT);
+        cache.get("show me who deleted the buckets in s3", CONTEXT);
+        cache.get("failed console logins", CONTEXT);
+        cache.get("failed console logins", CONTEXT);
+
+        assertEquals(1.0, lookups("hit"));
+        assertEquals(1.0, lookups("similar_hit"));
+        assertEquals(2.0, lookups("miss"));
+    }
+
+    @Test
+    @DisplayName("Should not match phrasings that differ in numbers or negation")
+    void testGuardTokens() {
+        cache.put("failed console logins last 24h", CONTEXT, SQL);
+
+        assertTrue(cache.get("failed console logins last 48h", CONTEXT).isEmpty());
+        assertTrue(cache.get("not failed console logins last 24h", CONTEXT).isEmpty());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Should miss when the schema changes")
+    void testSchemaFingerprint() {
+        cache.put("who deleted S3 buckets", CONTEXT, SQL);
+
+        assertTrue(cache.get("who deleted S3 buckets", CONTEXT + "\nuseridentity string").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry when full")
+    void testLruEviction() {
+        config.setSqlCacheMaxEntries(2);
+        config.setSqlCacheSimilarityThreshold(0);
+
+        cache.put("query one", CONTEXT, "SELECT 1;");
+        cache.put("query two", CONTEXT, "SELECT 2;");
+        cache.get("query one", CONTEXT);
+        cache.put("query three", CONTEXT, "SELECT 3;");
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get("query one", CONTEXT).isPresent());
+        assertTrue(cache.get("query two", CONTEXT).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not serve expired entries")
+    void testTtlExpiry() {
+        config.setSqlCacheTtlMinutes(0);
+
+        cache.put("who deleted S3 buckets", CONTEXT, SQL);
+
+        assertTrue(cache.get("who deleted S3 buckets", CONTEXT).isEmpty());
+    }
+
+    private double lookups(String result) {
+        return registry.get("cloudaudit.sql.cache.lookups").tag("result", result).functionCounter().count();
+    }
+}
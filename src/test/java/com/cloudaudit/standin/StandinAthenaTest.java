@@ -0,0 +1,77 @@
+package com.cloudaudit.standin;
+
+import com.cloudaudit.config.CloudAuditConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.athena.AthenaClient;
+import software.amazon.awssdk.services.athena.model.BatchGetQueryExecutionRequest;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsRequest;
+import software.amazon.awssdk.services.athena.model.GetQueryResultsResponse;
+import software.amazon.awssdk.services.athena.model.QueryExecution;
+import software.amazon.awssdk.services.athena.model.QueryExecutionState;
+import software.amazon.awssdk.services.athena.model.StartQueryExecutionRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StandinAthenaTest {
+
+    private CloudAuditConfig config;
+    private StandinConfig standin;
+    private AthenaClient athenaClient;
+
+    @BeforeEach
+    void setUp() {
+        config = new CloudAuditConfig();
+        config.setAwsRegion("us-east-1");
+        standin = new StandinConfig();
+        standin.setApiMedianMillis(0);
+        standin.setApiP99Millis(0);
+        standin.setAthenaMedianMillis(0);
+        standin.setAthenaP99Millis(0);
+        standin.setPageMedianMillis(0);
+        standin.setPageP99Millis(0);
+        standin.setResultRows(2500);
+        athenaClient = new StandinAthena(config, standin).syncClient();
+    }
+
+    @Test
+    @DisplayName("Should page through the configured number of rows with the header first")
+    void testPagesAllRows() throws Exception {
+        String id = start();
+
+        GetQueryResultsRequest request = GetQueryResultsRequest.builder().queryExecutionId(id).maxResults(1000).build();
+        GetQueryResultsResponse page = athenaClient.getQueryResults(request);
+        assertEquals("eventtime", page.resultSet().rows().get(0).data().get(0).varCharValue());
+
+        int rows = page.resultSet().rows().size() - 1;
+        while (page.nextToken() != null) {
+            page = athenaClient.getQueryResults(request.toBuilder().nextToken(page.nextToken()).build());
+            rows += page.resultSet().rows().size();
+        }
+
+        assertEquals(2500, rows);
+    }
+
+    @Test
+    @DisplayName("Should report success with statistics once the simulated run time has passed")
+    void testReportsSucceededExecution() throws Exception {
+        String id = start();
+
+        QueryExecution execution = athenaClient.batchGetQueryExecution(BatchGetQueryExecutionRequest.builder()
+                .queryExecutionIds(id)
+                .build()).queryExecutions().get(0);
+
+        assertEquals(QueryExecutionState.SUCCEEDED, execution.status().state());
+        assertTrue(execution.statistics().dataScannedInBytes() > 0);
+    }
+
+    private String start() throws InterruptedException {
+        String id = athenaClient.startQueryExecution(StartQueryExecutionRequest.builder()
+                .queryString("SELECT * FROM cloudtrail_logs;")
+                .build()).queryExecutionId();
+        // Shortest simulated run time is one millisecond
+        Thread.sleep(5);
+        return id;
+    }
+}